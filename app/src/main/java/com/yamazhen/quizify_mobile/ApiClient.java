@@ -0,0 +1,64 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.brotli.BrotliInterceptor;
+
+/**
+ * Application wide networking. Every screen shares one OkHttpClient so they also share
+ * its connection pool, dispatcher threads and the on-disk HTTP cache.
+ */
+public final class ApiClient {
+    public static final String BASE_URL = BuildConfig.API_BASE_URL;
+
+    private static final long CACHE_SIZE = 10L * 1024 * 1024; // 10 MB
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static volatile OkHttpClient client;
+
+    private ApiClient() {
+    }
+
+    public static OkHttpClient getInstance(Context context) {
+        if (client == null) {
+            synchronized (ApiClient.class) {
+                if (client == null) {
+                    client = build(context.getApplicationContext());
+                }
+            }
+        }
+        return client;
+    }
+
+    public static String url(String path) {
+        return BASE_URL + path;
+    }
+
+    private static OkHttpClient build(Context appContext) {
+        File cacheDir = new File(appContext.getCacheDir(), "http_cache");
+
+        return new OkHttpClient.Builder()
+                .cache(new Cache(cacheDir, CACHE_SIZE))
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+                // HTTP/2 is negotiated over TLS via ALPN, plain http falls back to keep-alive HTTP/1.1
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                // Large PDFs take a while to go up on mobile links
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .eventListenerFactory(TimingEventListener.FACTORY)
+                // Asks for br as well as gzip and decodes either transparently
+                .addInterceptor(BrotliInterceptor.INSTANCE)
+                .build();
+    }
+}
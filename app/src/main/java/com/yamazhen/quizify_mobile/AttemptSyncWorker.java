@@ -0,0 +1,22 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/** Sends the attempts still queued on the device, scheduled by AttemptUploader.scheduleSync. */
+public class AttemptSyncWorker extends Worker {
+
+    public AttemptSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        // Attempts are small and never go stale, so there is no limit on retries
+        return AttemptUploader.getInstance(getApplicationContext()).flush() ? Result.success() : Result.retry();
+    }
+}
@@ -0,0 +1,245 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Sends attempts that were graded on the device to the server. Attempts are written to the
+ * local store first and only removed once the server has taken them. Whatever is queued goes
+ * up together in one /submit-answers/batch request, and anything that could not be sent is
+ * left to AttemptSyncWorker, which runs once there is a network and backs off while the server
+ * is unreachable. The server grades each attempt again, and its results are handed back for
+ * the attempt the caller is waiting on.
+ */
+public class AttemptUploader {
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final String SYNC_WORK_NAME = "attempt-sync";
+    // Same as the server's MAX_ATTEMPTS_PER_BATCH
+    private static final int MAX_BATCH = 100;
+    // Well under the server's BATCH_BODY_LIMIT, which also has to fit the ids and the wrapper
+    private static final int MAX_BATCH_BYTES = 512 * 1024;
+    private static final long BACKOFF_SECONDS = 30;
+
+    private static final ExecutorService uploadExecutor = Executors.newSingleThreadExecutor();
+
+    public interface VerificationListener {
+        /** The server's grading of the attempt, on the main thread. */
+        void onVerified(List<GradeResult> serverResults);
+    }
+
+    private static volatile AttemptUploader instance;
+
+    private final Context appContext;
+    private final QuizifyDatabase database;
+    private final OkHttpClient client;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Older servers only have /submit-answers, found out once per process
+    private volatile boolean batchUnsupported;
+
+    public static AttemptUploader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AttemptUploader.class) {
+                if (instance == null) {
+                    instance = new AttemptUploader(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private AttemptUploader(Context appContext) {
+        this.appContext = appContext;
+        database = QuizifyDatabase.getInstance(appContext);
+        client = ApiClient.getInstance(appContext);
+    }
+
+    /** Queues the attempt and tries to send it now, listener may be null when no verification is wanted. */
+    public void submit(String fileName, String body, VerificationListener listener) {
+        uploadExecutor.execute(() -> {
+            long id = database.insertAttempt(fileName, body);
+            if (!flushPending(id, listener)) {
+                scheduleSync();
+            }
+        });
+    }
+
+    /** Has AttemptSyncWorker send whatever is still queued, e.g. from a previous offline session. */
+    public void scheduleSync() {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(AttemptSyncWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+        // A sync that is already waiting sends everything queued since as well
+        WorkManager.getInstance(appContext).enqueueUniqueWork(SYNC_WORK_NAME, ExistingWorkPolicy.KEEP, request);
+    }
+
+    /** Sends everything queued on the calling thread, false when some of it has to be tried again later. */
+    boolean flush() {
+        return flushPending(-1, null);
+    }
+
+    // One flush at a time, so an attempt is never sent twice
+    private synchronized boolean flushPending(long verifyId, VerificationListener listener) {
+        List<PendingAttempt> batch = new ArrayList<>();
+        int batchBytes = 0;
+        try {
+            for (PendingAttempt attempt : database.getPendingAttempts()) {
+                int bytes = attempt.getBody().getBytes(StandardCharsets.UTF_8).length;
+                if (!batch.isEmpty() && (batch.size() >= MAX_BATCH || batchBytes + bytes > MAX_BATCH_BYTES)) {
+                    if (!send(batch, verifyId, listener)) {
+                        return false;
+                    }
+                    batch = new ArrayList<>();
+                    batchBytes = 0;
+                }
+                batch.add(attempt);
+                batchBytes += bytes;
+            }
+            return batch.isEmpty() || send(batch, verifyId, listener);
+        } catch (IOException e) {
+            // Offline, the rest would fail the same way
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Returns false when the server could not take the batch right now
+    private boolean send(List<PendingAttempt> batch, long verifyId, VerificationListener listener)
+            throws IOException {
+        return batchUnsupported ? sendEach(batch, verifyId, listener) : sendBatch(batch, verifyId, listener);
+    }
+
+    private boolean sendBatch(List<PendingAttempt> batch, long verifyId, VerificationListener listener)
+            throws IOException {
+        List<PendingAttempt> sent = new ArrayList<>();
+        List<PendingAttempt> oneByOne = new ArrayList<>();
+        JSONArray attempts = new JSONArray();
+        for (PendingAttempt attempt : batch) {
+            try {
+                // The stored body is the single attempt request, { "answers": [ ... ] }
+                JSONObject json = new JSONObject(attempt.getBody());
+                json.put("id", attempt.getId());
+                attempts.put(json);
+                sent.add(attempt);
+            } catch (JSONException e) {
+                // Goes up on its own below, so it is only dropped if the server rejects it
+                e.printStackTrace();
+                oneByOne.add(attempt);
+            }
+        }
+
+        if (!sent.isEmpty()) {
+            Request request = new Request.Builder()
+                    .url(ApiClient.url("/submit-answers/batch"))
+                    .post(RequestBody.create("{\"attempts\":" + attempts + "}", JSON))
+                    .build();
+            int code;
+            try (Response response = client.newCall(request).execute()) {
+                code = response.code();
+                if (response.isSuccessful()) {
+                    if (listener != null) {
+                        postBatchVerification(response, verifyId, listener);
+                    }
+                    database.deleteAttempts(sent);
+                }
+            }
+            if (isRetryable(code)) {
+                return false;
+            }
+            if (code == 404) {
+                batchUnsupported = true;
+            }
+            if (code == 413 && sent.size() > 1) {
+                // Too big for the server after all, each half goes up on its own
+                int half = sent.size() / 2;
+                if (!sendBatch(new ArrayList<>(sent.subList(0, half)), verifyId, listener)) {
+                    return false;
+                }
+                if (!sendBatch(new ArrayList<>(sent.subList(half, sent.size())), verifyId, listener)) {
+                    return false;
+                }
+            } else if (code >= 400) {
+                // The batch as a whole was refused, sending each attempt finds the ones actually at fault
+                oneByOne.addAll(sent);
+            }
+        }
+        return oneByOne.isEmpty() || sendEach(oneByOne, verifyId, listener);
+    }
+
+    private boolean sendEach(List<PendingAttempt> batch, long verifyId, VerificationListener listener)
+            throws IOException {
+        for (PendingAttempt attempt : batch) {
+            Request request = new Request.Builder()
+                    .url(ApiClient.url("/submit-answers"))
+                    .post(RequestBody.create(attempt.getBody(), JSON))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                if (isRetryable(response.code())) {
+                    return false;
+                }
+                if (response.isSuccessful() && attempt.getId() == verifyId && listener != null) {
+                    postVerification(response, listener);
+                }
+                // Any other 4xx is this attempt being rejected, it would never succeed
+                database.deleteAttempt(attempt.getId());
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRetryable(int code) {
+        return code >= 500 || code == 408 || code == 429;
+    }
+
+    private void postVerification(Response response, VerificationListener listener) {
+        try {
+            List<GradeResult> results = JsonDecoder.readGradeResults(response.body().charStream());
+            mainHandler.post(() -> listener.onVerified(results));
+        } catch (IOException | IllegalStateException e) {
+            // The attempt was still delivered, only the check is lost
+            e.printStackTrace();
+        }
+    }
+
+    private void postBatchVerification(Response response, long verifyId, VerificationListener listener) {
+        try {
+            Map<Long, List<GradeResult>> attempts = JsonDecoder.readBatchResults(response.body().charStream());
+            List<GradeResult> results = attempts.get(verifyId);
+            if (results != null) {
+                mainHandler.post(() -> listener.onVerified(results));
+            }
+        } catch (IOException | IllegalStateException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.yamazhen.quizify_mobile;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decoder for the binary question page the server sends when asked for {@link #QUESTIONS_TYPE}
+ * (see wireFormat.js). Big-endian, strings are an int32 UTF-8 byte length (-1 for null) followed
+ * by the bytes:
+ * <pre>
+ * "QZQ1" nextCursor:string count:int32
+ * count * (id:int32 questionText:string correctAnswer:string choiceCount:int32 choiceCount * string)
+ * </pre>
+ */
+public final class BinaryDecoder {
+    public static final String QUESTIONS_TYPE = "application/x-quizify-questions";
+
+    private static final byte[] MAGIC = {'Q', 'Z', 'Q', '1'};
+
+    private BinaryDecoder() {
+    }
+
+    public static Page<Question> readQuestionPage(InputStream source) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(source))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (magic[i] != MAGIC[i]) {
+                    throw new IOException("Not a question page");
+                }
+            }
+
+            String nextCursor = readString(in);
+            int count = readCount(in);
+            List<Question> questions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                String questionText = readString(in);
+                String correctAnswer = readString(in);
+                int choiceCount = readCount(in);
+                List<String> choices = new ArrayList<>(choiceCount);
+                for (int j = 0; j < choiceCount; j++) {
+                    choices.add(readString(in));
+                }
+                questions.add(new Question(id, questionText, choices, correctAnswer));
+            }
+            return new Page<>(questions, nextCursor);
+        }
+    }
+
+    // Counts size the lists up front, so a corrupt one must not turn into a huge allocation
+    private static int readCount(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 100_000) {
+            throw new IOException("Bad count " + count);
+        }
+        return count;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,187 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.net.Uri;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Resumable PDF upload. The file is read once to hash it, the server is asked whether it
+ * already knows that content, and a second read sends only the chunks it has not received
+ * yet. Identical lectures never get parsed or sent to the model twice. Once the bytes are
+ * up the server generates in a background job, which is followed with JobWatcher.
+ * Everything runs on the calling thread, UploadWorker drives it from WorkManager.
+ */
+public class ChunkedUploader {
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private final ContentResolver contentResolver;
+    private final OkHttpClient client;
+
+    public ChunkedUploader(Context context) {
+        contentResolver = context.getApplicationContext().getContentResolver();
+        client = ApiClient.getInstance(context);
+    }
+
+    /**
+     * Uploads and returns the generation job the server started, which is usually still running.
+     * Returns null when the server predates /uploads and the caller should fall back to a plain
+     * upload. A finished status without a job id means the server already had this content and
+     * nothing was generated. Error responses are thrown as HttpStatusException.
+     */
+    public JobStatus upload(Uri uri, String fileName, int questionCount,
+                            ContentUriRequestBody.ProgressListener progress) throws IOException {
+        MessageDigest digest = sha256();
+        long size = 0;
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = open(uri)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+                size += read;
+            }
+        }
+        String hash = toHex(digest.digest());
+
+        UploadSession session = startSession(hash, size, fileName, questionCount);
+        if (session == null) {
+            return null;
+        }
+        if (session.isKnown()) {
+            return new JobStatus(null, JobStatus.COMPLETED, session.getQuestionCount(), null);
+        }
+
+        int chunkSize = session.getChunkSize();
+        int totalChunks = (int) ((size + chunkSize - 1) / chunkSize);
+        byte[] chunk = new byte[chunkSize];
+        long uploaded = 0;
+        try (InputStream in = open(uri)) {
+            for (int i = 0; i < totalChunks; i++) {
+                int length = readFully(in, chunk);
+                if (!session.hasChunk(i)) {
+                    putChunk(hash, i, chunk, length);
+                }
+                uploaded += length;
+                progress.onProgress(uploaded, size);
+            }
+        }
+
+        return complete(hash, fileName, totalChunks, questionCount);
+    }
+
+    private UploadSession startSession(String hash, long size, String fileName, int questionCount)
+            throws IOException {
+        JSONObject body = new JSONObject();
+        try {
+            body.put("hash", hash);
+            body.put("size", size);
+            body.put("fileName", fileName);
+            // Known content with fewer questions than this is topped up rather than reused
+            body.put("questionCount", questionCount);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+
+        Request request = new Request.Builder()
+                .url(ApiClient.url("/uploads"))
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404) {
+                return null;
+            }
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            return JsonDecoder.readUploadSession(response.body().charStream());
+        }
+    }
+
+    private void putChunk(String hash, int index, byte[] chunk, int length) throws IOException {
+        Request request = new Request.Builder()
+                .url(ApiClient.url("/uploads/" + hash + "/chunks/" + index))
+                .put(RequestBody.create(chunk, OCTET_STREAM, 0, length))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+        }
+    }
+
+    private JobStatus complete(String hash, String fileName, int totalChunks, int questionCount) throws IOException {
+        JSONObject body = new JSONObject();
+        try {
+            body.put("fileName", fileName);
+            body.put("totalChunks", totalChunks);
+            body.put("questionCount", questionCount);
+        } catch (JSONException e) {
+            throw new IOException(e);
+        }
+
+        Request request = new Request.Builder()
+                .url(ApiClient.url("/uploads/" + hash + "/complete"))
+                .post(RequestBody.create(body.toString(), JSON))
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 429) {
+                // The chunks stay on the server, uploading again later only repeats this call
+                throw new HttpStatusException(429, "Server is busy, try again later");
+            }
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            return JsonDecoder.readJobStatus(response.body().charStream());
+        }
+    }
+
+    private InputStream open(Uri uri) throws IOException {
+        InputStream in = contentResolver.openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("Could not open " + uri);
+        }
+        return in;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (total < buffer.length && (read = in.read(buffer, total, buffer.length - total)) != -1) {
+            total += read;
+        }
+        return total;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android release ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+}
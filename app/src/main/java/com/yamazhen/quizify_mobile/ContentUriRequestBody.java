@@ -0,0 +1,95 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Streams a document straight from its Uri into the request, so the file is never buffered
+ * whole. writeTo and contentLength run on whichever thread is sending the request.
+ */
+public class ContentUriRequestBody extends RequestBody {
+    private static final int SEGMENT_SIZE = 64 * 1024;
+
+    public interface ProgressListener {
+        void onProgress(long bytesWritten, long totalBytes);
+    }
+
+    private final ContentResolver contentResolver;
+    private final Uri uri;
+    private final MediaType mediaType;
+    @Nullable
+    private final ProgressListener progressListener;
+    private long contentLength = -2; // -2 = not queried yet, -1 = unknown
+
+    public ContentUriRequestBody(ContentResolver contentResolver, Uri uri, MediaType mediaType,
+                                 @Nullable ProgressListener progressListener) {
+        this.contentResolver = contentResolver;
+        this.uri = uri;
+        this.mediaType = mediaType;
+        this.progressListener = progressListener;
+    }
+
+    @Nullable
+    @Override
+    public MediaType contentType() {
+        return mediaType;
+    }
+
+    @Override
+    public long contentLength() {
+        if (contentLength == -2) {
+            contentLength = querySize();
+        }
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(@NonNull BufferedSink sink) throws IOException {
+        InputStream inputStream = contentResolver.openInputStream(uri);
+        if (inputStream == null) {
+            throw new FileNotFoundException("Could not open " + uri);
+        }
+
+        long total = contentLength();
+        long written = 0;
+        try (Source source = Okio.source(inputStream)) {
+            long read;
+            while ((read = source.read(sink.getBuffer(), SEGMENT_SIZE)) != -1) {
+                sink.emitCompleteSegments();
+                written += read;
+                if (progressListener != null) {
+                    progressListener.onProgress(written, total);
+                }
+            }
+        }
+    }
+
+    private long querySize() {
+        // Staged uploads are plain files, which have no provider to ask
+        if (ContentResolver.SCHEME_FILE.equals(uri.getScheme())) {
+            return new File(uri.getPath()).length();
+        }
+        try (Cursor cursor = contentResolver.query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return cursor.getLong(0);
+            }
+        }
+        return -1;
+    }
+}
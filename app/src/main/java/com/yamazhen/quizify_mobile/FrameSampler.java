@@ -0,0 +1,54 @@
+package com.yamazhen.quizify_mobile;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.RequiresApi;
+
+/**
+ * Records how long each frame the window actually draws took, from input handling to the
+ * GPU, under "frame.<screen>". The numbers come from FrameMetrics, so nothing runs while the
+ * screen is idle and time between frames is never mistaken for work. Start it in onResume and
+ * stop it in onPause. FrameMetrics needs API 24, on older devices nothing is recorded.
+ */
+public class FrameSampler {
+    private static HandlerThread metricsThread;
+
+    private final String name;
+    private Object listener;
+
+    public FrameSampler(String screen) {
+        name = "frame." + screen;
+    }
+
+    public void start(Window window) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || listener != null) {
+            return;
+        }
+        Window.OnFrameMetricsAvailableListener frameListener = (w, frameMetrics, dropCount) ->
+                Metrics.record(name, frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+        window.addOnFrameMetricsAvailableListener(frameListener, metricsHandler());
+        listener = frameListener;
+    }
+
+    public void stop(Window window) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || listener == null) {
+            return;
+        }
+        window.removeOnFrameMetricsAvailableListener((Window.OnFrameMetricsAvailableListener) listener);
+        listener = null;
+    }
+
+    // Frame metrics are delivered off the main thread, one thread is shared by every screen
+    @RequiresApi(Build.VERSION_CODES.N)
+    private static synchronized Handler metricsHandler() {
+        if (metricsThread == null) {
+            metricsThread = new HandlerThread("frame-metrics");
+            metricsThread.start();
+        }
+        return new Handler(metricsThread.getLooper());
+    }
+}
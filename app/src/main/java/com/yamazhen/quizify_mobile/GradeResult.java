@@ -0,0 +1,25 @@
+package com.yamazhen.quizify_mobile;
+
+public class GradeResult {
+    private final int questionId;
+    private final boolean correct;
+    private final String correctAnswer;
+
+    public GradeResult(int questionId, boolean correct, String correctAnswer) {
+        this.questionId = questionId;
+        this.correct = correct;
+        this.correctAnswer = correctAnswer;
+    }
+
+    public int getQuestionId() {
+        return questionId;
+    }
+
+    public boolean isCorrect() {
+        return correct;
+    }
+
+    public String getCorrectAnswer() {
+        return correctAnswer;
+    }
+}
@@ -0,0 +1,73 @@
+package com.yamazhen.quizify_mobile;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * Latency histogram with power-of-two microsecond buckets. Fixed size and cheap to record into,
+ * percentiles are the upper bound of the bucket they fall in, so within a factor of two.
+ */
+public class Histogram {
+    private static final int BUCKETS = 32; // 1 us .. ~36 min
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sumMicros;
+    private long minMicros = Long.MAX_VALUE;
+    private long maxMicros;
+
+    public synchronized void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        counts[bucketOf(micros)]++;
+        count++;
+        sumMicros += micros;
+        minMicros = Math.min(minMicros, micros);
+        maxMicros = Math.max(maxMicros, micros);
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Approximate percentile in microseconds, p between 0 and 100. */
+    public synchronized long percentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= Math.max(rank, 1)) {
+                return Math.min(1L << i, maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    public synchronized JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("count", count);
+        json.put("meanUs", count == 0 ? 0 : sumMicros / count);
+        json.put("minUs", count == 0 ? 0 : minMicros);
+        json.put("p50Us", percentile(50));
+        json.put("p95Us", percentile(95));
+        json.put("p99Us", percentile(99));
+        json.put("maxUs", maxMicros);
+        return json;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "n=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                count, percentile(50) / 1000.0, percentile(95) / 1000.0, percentile(99) / 1000.0, maxMicros / 1000.0);
+    }
+
+    // Bucket i holds values up to 2^i microseconds
+    private static int bucketOf(long micros) {
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+}
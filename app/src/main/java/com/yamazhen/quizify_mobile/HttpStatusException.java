@@ -0,0 +1,29 @@
+package com.yamazhen.quizify_mobile;
+
+import java.io.IOException;
+
+/** A response with an error status, so background work can tell a refusal from a hiccup. */
+public class HttpStatusException extends IOException {
+    private final int code;
+
+    public HttpStatusException(int code) {
+        this(code, "Server error: " + code);
+    }
+
+    public HttpStatusException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Whether the same request can succeed later. 409 is the server still missing chunks, which
+     * the next attempt sends.
+     */
+    public boolean isRetryable() {
+        return code >= 500 || code == 408 || code == 409 || code == 429;
+    }
+}
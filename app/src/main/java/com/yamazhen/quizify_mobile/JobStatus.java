@@ -0,0 +1,41 @@
+package com.yamazhen.quizify_mobile;
+
+/** State of a server-side generation job, as returned by the upload endpoints and /jobs/:id. */
+public class JobStatus {
+    public static final String QUEUED = "queued";
+    public static final String PROCESSING = "processing";
+    public static final String COMPLETED = "completed";
+    public static final String FAILED = "failed";
+
+    private final String jobId;
+    private final String status;
+    private final int questionCount;
+    private final String error;
+
+    public JobStatus(String jobId, String status, int questionCount, String error) {
+        this.jobId = jobId;
+        this.status = status;
+        this.questionCount = questionCount;
+        this.error = error;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isFinished() {
+        return COMPLETED.equals(status) || FAILED.equals(status);
+    }
+}
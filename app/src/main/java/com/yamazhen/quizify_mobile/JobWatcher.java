@@ -0,0 +1,59 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+
+import java.io.IOException;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Follows a generation job until it finishes. Uses the server's long-poll support, so a
+ * waiting client costs one open request per ~20 seconds instead of a tight polling loop.
+ */
+public class JobWatcher {
+    // Must stay below ApiClient's read timeout
+    private static final int LONG_POLL_SECONDS = 20;
+    private static final long RETRY_DELAY_MS = 2000;
+    private static final int MAX_CONSECUTIVE_FAILURES = 5;
+
+    private final OkHttpClient client;
+
+    public JobWatcher(Context context) {
+        client = ApiClient.getInstance(context);
+    }
+
+    /**
+     * Blocks until the job finishes. Returns null when the server no longer knows the job, e.g.
+     * after a restart, so the caller has to start over. Must not be called on the main thread.
+     */
+    public JobStatus await(String jobId) throws IOException, InterruptedException {
+        Request request = new Request.Builder()
+                .url(ApiClient.url("/jobs/" + jobId + "?wait=" + LONG_POLL_SECONDS))
+                .build();
+
+        int failures = 0;
+        while (true) {
+            try (Response response = client.newCall(request).execute()) {
+                if (response.code() == 404) {
+                    return null;
+                }
+                if (!response.isSuccessful()) {
+                    throw new HttpStatusException(response.code());
+                }
+                JobStatus status = JsonDecoder.readJobStatus(response.body().charStream());
+                if (status.isFinished()) {
+                    return status;
+                }
+                failures = 0;
+            } catch (IOException e) {
+                // Flaky mobile links drop long-polls, only give up after several in a row
+                if (++failures >= MAX_CONSECUTIVE_FAILURES) {
+                    throw e;
+                }
+                Thread.sleep(RETRY_DELAY_MS);
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.yamazhen.quizify_mobile;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming decoders for the server payloads. Responses are read token by token straight
+ * from the OkHttp body into model objects, so neither the raw String nor an org.json tree
+ * of the whole payload is ever held in memory.
+ */
+public final class JsonDecoder {
+
+    private JsonDecoder() {
+    }
+
+    /** Decodes {@code { "questions": [ ... ], "nextCursor": ... }} as returned by /questions/:fileName. */
+    public static Page<Question> readQuestionPage(Reader source) throws IOException {
+        List<Question> questions = new ArrayList<>();
+        String nextCursor = null;
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "questions":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            questions.add(readQuestion(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case "nextCursor":
+                        nextCursor = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+        return new Page<>(questions, nextCursor);
+    }
+
+    /** Decodes {@code { "questions": [ { fileName, questionCount } ], "nextCursor": ... }} as returned by /resources. */
+    public static Page<Resource> readResourcePage(Reader source) throws IOException {
+        List<Resource> resources = new ArrayList<>();
+        String nextCursor = null;
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    // The endpoint names the list "questions"
+                    case "questions":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            resources.add(readResource(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case "nextCursor":
+                        nextCursor = nextStringOrNull(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+        return new Page<>(resources, nextCursor);
+    }
+
+    /** Decodes the {@code results} array of a /submit-answers response. */
+    public static List<GradeResult> readGradeResults(Reader source) throws IOException {
+        List<GradeResult> results = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("results")) {
+                    results = readGradeResultArray(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return results;
+    }
+
+    /** Decodes a /submit-answers/batch response into each attempt's results, keyed by attempt id. */
+    public static Map<Long, List<GradeResult>> readBatchResults(Reader source) throws IOException {
+        Map<Long, List<GradeResult>> attempts = new HashMap<>();
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("attempts")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Long id = null;
+                    List<GradeResult> results = new ArrayList<>();
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "id":
+                                if (reader.peek() == JsonToken.NUMBER) {
+                                    id = reader.nextLong();
+                                } else {
+                                    reader.skipValue();
+                                }
+                                break;
+                            case "results":
+                                results = readGradeResultArray(reader);
+                                break;
+                            default:
+                                reader.skipValue();
+                                break;
+                        }
+                    }
+                    reader.endObject();
+                    if (id != null) {
+                        attempts.put(id, results);
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+        return attempts;
+    }
+
+    /** Decodes the POST /uploads response. */
+    public static UploadSession readUploadSession(Reader source) throws IOException {
+        boolean known = false;
+        int chunkSize = 0;
+        Set<Integer> receivedChunks = new HashSet<>();
+        int questionCount = 0;
+
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "known":
+                        known = reader.nextBoolean();
+                        break;
+                    case "chunkSize":
+                        chunkSize = reader.nextInt();
+                        break;
+                    case "receivedChunks":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            receivedChunks.add(reader.nextInt());
+                        }
+                        reader.endArray();
+                        break;
+                    case "questions":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.skipValue();
+                            questionCount++;
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+        return new UploadSession(known, chunkSize, receivedChunks, questionCount);
+    }
+
+    /**
+     * Decodes a generation job status. Upload endpoints answer with the same shape, or with
+     * {@code { questions: [...], deduplicated: true }} when the content was already known,
+     * which is reported as a job that has already completed.
+     */
+    public static JobStatus readJobStatus(Reader source) throws IOException {
+        String jobId = null;
+        String status = null;
+        int questionCount = 0;
+        String error = null;
+
+        try (JsonReader reader = new JsonReader(source)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "jobId":
+                        jobId = nextStringOrNull(reader);
+                        break;
+                    case "status":
+                        status = nextStringOrNull(reader);
+                        break;
+                    case "questionCount":
+                        questionCount = reader.nextInt();
+                        break;
+                    case "error":
+                        error = nextStringOrNull(reader);
+                        break;
+                    case "questions":
+                        status = JobStatus.COMPLETED;
+                        questionCount = 0;
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            reader.skipValue();
+                            questionCount++;
+                        }
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        }
+        return new JobStatus(jobId, status, questionCount, error);
+    }
+
+    /** Decodes a JSON array of strings, used for the choices column of the local store. */
+    public static List<String> readStringArray(String json) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            return readStrings(reader);
+        }
+    }
+
+    private static Question readQuestion(JsonReader reader) throws IOException {
+        int id = 0;
+        String questionText = null;
+        List<String> choices = new ArrayList<>();
+        String correctAnswer = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextInt();
+                    break;
+                case "questionText":
+                    questionText = nextStringOrNull(reader);
+                    break;
+                case "choices":
+                    choices = readStrings(reader);
+                    break;
+                case "correctAnswer":
+                    correctAnswer = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Question(id, questionText, choices, correctAnswer);
+    }
+
+    private static Resource readResource(JsonReader reader) throws IOException {
+        String fileName = null;
+        int questionCount = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "fileName":
+                    fileName = nextStringOrNull(reader);
+                    break;
+                case "questionCount":
+                    questionCount = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new Resource(fileName, questionCount);
+    }
+
+    private static List<GradeResult> readGradeResultArray(JsonReader reader) throws IOException {
+        List<GradeResult> results = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            results.add(readGradeResult(reader));
+        }
+        reader.endArray();
+        return results;
+    }
+
+    private static GradeResult readGradeResult(JsonReader reader) throws IOException {
+        int questionId = 0;
+        boolean correct = false;
+        String correctAnswer = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "questionId":
+                    questionId = reader.nextInt();
+                    break;
+                case "isCorrect":
+                    correct = reader.nextBoolean();
+                    break;
+                case "correctAnswer":
+                    correctAnswer = nextStringOrNull(reader);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new GradeResult(questionId, correct, correctAnswer);
+    }
+
+    private static List<String> readStrings(JsonReader reader) throws IOException {
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(nextStringOrNull(reader));
+        }
+        reader.endArray();
+        return values;
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,62 @@
+package com.yamazhen.quizify_mobile;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Asks for the next page once the user scrolls within a few rows of the end of the list. Rows
+ * landing are checked too, since a page too short to fill the screen leaves nothing to scroll.
+ */
+public class LoadMoreScrollListener extends RecyclerView.OnScrollListener {
+    private static final int LOAD_AHEAD_ROWS = 10;
+
+    public interface LoadMoreHandler {
+        void onLoadMore();
+    }
+
+    private final LoadMoreHandler handler;
+
+    public LoadMoreScrollListener(LoadMoreHandler handler) {
+        this.handler = handler;
+    }
+
+    /** Starts listening to the list, its adapter has to be set already. */
+    public void attach(@NonNull RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(this);
+        recyclerView.getAdapter().registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                checkAfterLayout(recyclerView);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                checkAfterLayout(recyclerView);
+            }
+        });
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy > 0) {
+            check(recyclerView);
+        }
+    }
+
+    // The new rows are only laid out on the next frame
+    private void checkAfterLayout(RecyclerView recyclerView) {
+        recyclerView.post(() -> check(recyclerView));
+    }
+
+    private void check(RecyclerView recyclerView) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        if (layoutManager == null) {
+            return;
+        }
+        int lastVisible = layoutManager.findLastVisibleItemPosition();
+        if (lastVisible >= layoutManager.getItemCount() - LOAD_AHEAD_ROWS) {
+            handler.onLoadMore();
+        }
+    }
+}
@@ -2,51 +2,53 @@ package com.yamazhen.quizify_mobile;
 
 import android.content.Intent;
 import android.database.Cursor;
-import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
 
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.graphics.Insets;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import android.provider.OpenableColumns;
-import android.view.ViewGroup;
+import android.view.View;
 import android.widget.Button;
-import android.widget.ImageButton;
-import android.widget.LinearLayout;
-import android.widget.TableLayout;
-import android.widget.TableRow;
+import android.widget.EditText;
+import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import org.jetbrains.annotations.NotNull;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.MultipartBody;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 
 public class MainActivity extends AppCompatActivity {
+    private static final int DEFAULT_QUESTION_COUNT = 10;
+    private static final String KEY_UPLOAD_ID = "uploadId";
 
     private TextView filePathTextView;
+    private EditText questionCountInput;
     private Uri selectedFileUri;
     private String selectedFileName;
+    private ResourceAdapter resourceAdapter;
+    private ProgressBar uploadProgress;
+    // The upload this screen reports on, kept across rotation
+    private UUID uploadId;
+    private UploadViewModel uploadViewModel;
+    private RecyclerView filesList;
+    private String resourcesCursor;
+    private boolean loadingMoreResources;
+    private final FrameSampler frameSampler = new FrameSampler("main");
 
     private final ActivityResultLauncher<Intent> pdfPickerLauncher =
             registerForActivityResult(new ActivityResultContracts.StartActivityForResult(), result -> {
@@ -73,8 +75,29 @@ public class MainActivity extends AppCompatActivity {
 
         Button uploadButton = findViewById(R.id.upload_button);
         filePathTextView = findViewById(R.id.file_path);
+        questionCountInput = findViewById(R.id.question_count);
+        uploadProgress = findViewById(R.id.upload_progress);
         Button submitButton = findViewById(R.id.submit_button);
 
+        uploadViewModel = new ViewModelProvider(this).get(UploadViewModel.class);
+        uploadViewModel.getStagingError().observe(this, message -> {
+            if (message != null) {
+                uploadProgress.setVisibility(View.GONE);
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+                uploadViewModel.onStagingErrorShown();
+            }
+        });
+
+        filesList = findViewById(R.id.files_list);
+        filesList.setLayoutManager(new LinearLayoutManager(this));
+        resourceAdapter = new ResourceAdapter(resource -> {
+            Intent intent = new Intent(MainActivity.this, QuizActivity.class);
+            intent.putExtra("fileName", resource.getFileName());
+            startActivity(intent);
+        });
+        filesList.setAdapter(resourceAdapter);
+        new LoadMoreScrollListener(this::loadMoreResources).attach(filesList);
+
         uploadButton.setOnClickListener(view -> {
             // Launch file picker
             Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
@@ -91,7 +114,27 @@ public class MainActivity extends AppCompatActivity {
             }
         });
 
+        findViewById(R.id.title).setOnLongClickListener(v -> {
+            showMetrics();
+            return true;
+        });
+
+        if (savedInstanceState != null && savedInstanceState.getString(KEY_UPLOAD_ID) != null) {
+            observeUpload(UUID.fromString(savedInstanceState.getString(KEY_UPLOAD_ID)));
+        }
+
         loadResources();
+        // Attempts graded while offline go up as soon as there is a network
+        AttemptUploader.getInstance(this).scheduleSync();
+        UploadScheduler.cleanUpStagedFiles(this);
+    }
+
+    @Override
+    protected void onSaveInstanceState(@NonNull Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (uploadId != null) {
+            outState.putString(KEY_UPLOAD_ID, uploadId.toString());
+        }
     }
 
     private String getFileNameFromUri(Uri uri) {
@@ -114,185 +157,167 @@ public class MainActivity extends AppCompatActivity {
         return fileName;
     }
 
+    // The upload runs in WorkManager, so it carries on if the user leaves the app
     private void uploadPdfToServer(Uri fileUri, String fileName) {
-        // Convert Uri to a File
-        File tempFile = new File(getCacheDir(), fileName);
-        try (InputStream inputStream = getContentResolver().openInputStream(fileUri);
-             FileOutputStream outputStream = new FileOutputStream(tempFile)) {
-
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                outputStream.write(buffer, 0, bytesRead);
-            }
-
-        } catch (IOException e) {
-            e.printStackTrace();
-            Toast.makeText(this, "Failed to prepare file for upload", Toast.LENGTH_SHORT).show();
-            return;
-        }
-
-        // Now we have tempFile ready to upload
-        String uploadUrl = "http://10.0.2.2:3000/upload-pdf"; // Update this if needed
-
-        OkHttpClient client = new OkHttpClient();
-        RequestBody fileBody = RequestBody.create(tempFile, MediaType.parse("application/pdf"));
+        uploadProgress.setProgress(0);
+        uploadProgress.setIndeterminate(true);
+        uploadProgress.setVisibility(View.VISIBLE);
 
-        MultipartBody requestBody = new MultipartBody.Builder()
-                .setType(MultipartBody.FORM)
-                .addFormDataPart("pdf", fileName, fileBody)
-                .build();
-
-        Request request = new Request.Builder()
-                .url(uploadUrl)
-                .post(requestBody)
-                .addHeader("file-name", fileName) // optional if your server expects it
-                .build();
+        observeUpload(uploadViewModel.scheduleUpload(fileUri, fileName, getRequestedQuestionCount()));
+    }
 
-        client.newCall(request).enqueue(new Callback() {
-            @Override
-            public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                e.printStackTrace();
-                runOnUiThread(() ->
-                        Toast.makeText(MainActivity.this, "Upload failed: " + e.getMessage(), Toast.LENGTH_SHORT).show()
-                );
-            }
+    private void observeUpload(UUID id) {
+        uploadId = id;
+        WorkManager.getInstance(this).getWorkInfoByIdLiveData(id).observe(this, new Observer<WorkInfo>() {
+            private boolean toldWaiting;
 
             @Override
-            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    runOnUiThread(() ->
-                            Toast.makeText(MainActivity.this, "Server error: " + response.code(), Toast.LENGTH_SHORT).show()
-                    );
+            public void onChanged(WorkInfo info) {
+                // null until staging is done and the work is enqueued
+                if (info == null || !id.equals(uploadId)) {
                     return;
                 }
-
-                String responseBody = response.body().string();
-                try {
-                    JSONObject json = new JSONObject(responseBody);
-                    JSONArray questionsArray = json.getJSONArray("questions");
-                    runOnUiThread(() ->
-                            Toast.makeText(MainActivity.this, "Received " + questionsArray.length() + " questions", Toast.LENGTH_SHORT).show()
-                    );
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    runOnUiThread(() ->
-                            Toast.makeText(MainActivity.this, "JSON parse error", Toast.LENGTH_SHORT).show()
-                    );
+                switch (info.getState()) {
+                    case ENQUEUED:
+                    case BLOCKED:
+                        // Waiting on a retry or a charger could take hours, no point spinning
+                        boolean charging = info.getConstraints().requiresCharging();
+                        if (charging || info.getRunAttemptCount() > 0) {
+                            uploadProgress.setVisibility(View.GONE);
+                        }
+                        if (charging && !toldWaiting) {
+                            toldWaiting = true;
+                            Toast.makeText(MainActivity.this, "Large file, it will upload on Wi-Fi while charging",
+                                    Toast.LENGTH_LONG).show();
+                        }
+                        break;
+                    case RUNNING:
+                        showUploadProgress(info.getProgress().getInt(UploadWorker.KEY_PERCENT, -1));
+                        break;
+                    case SUCCEEDED:
+                        uploadId = null;
+                        uploadProgress.setVisibility(View.GONE);
+                        int questionCount = info.getOutputData().getInt(UploadWorker.KEY_QUESTION_COUNT, 0);
+                        String message = info.getOutputData().getBoolean(UploadWorker.KEY_DEDUPLICATED, false)
+                                ? "Already uploaded, " + questionCount + " questions available"
+                                : "Received " + questionCount + " questions";
+                        Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
+                        loadResources();
+                        break;
+                    case FAILED:
+                        uploadId = null;
+                        uploadProgress.setVisibility(View.GONE);
+                        Toast.makeText(MainActivity.this, info.getOutputData().getString(UploadWorker.KEY_ERROR),
+                                Toast.LENGTH_SHORT).show();
+                        break;
+                    case CANCELLED:
+                        uploadId = null;
+                        uploadProgress.setVisibility(View.GONE);
+                        break;
                 }
             }
         });
     }
 
+    private int getRequestedQuestionCount() {
+        String text = questionCountInput.getText().toString().trim();
+        try {
+            int count = Integer.parseInt(text);
+            // The server clamps this as well, anything silly falls back to the default
+            return count > 0 ? count : DEFAULT_QUESTION_COUNT;
+        } catch (NumberFormatException e) {
+            return DEFAULT_QUESTION_COUNT;
+        }
+    }
+
+    private void showUploadProgress(int percent) {
+        uploadProgress.setVisibility(View.VISIBLE);
+        // 100 means the bytes are up and the server is now parsing and generating
+        if (percent < 0 || percent == 100) {
+            uploadProgress.setIndeterminate(true);
+        } else {
+            uploadProgress.setIndeterminate(false);
+            uploadProgress.setProgress(percent);
+        }
+    }
+
     private void loadResources() {
-        String resourcesUrl = "http://10.0.2.2:3000/resources"; // Adjust if needed
+        QuizRepository.getInstance(this).loadResources(resourcePageCallback());
+    }
 
-        OkHttpClient client = new OkHttpClient();
-        Request request = new Request.Builder().url(resourcesUrl).build();
+    private void loadMoreResources() {
+        if (resourcesCursor == null || loadingMoreResources) {
+            return;
+        }
+        loadingMoreResources = true;
+        QuizRepository.getInstance(this).loadMoreResources(resourcesCursor, resourcePageCallback());
+    }
 
-        client.newCall(request).enqueue(new Callback() {
+    private QuizRepository.DataCallback<Page<Resource>> resourcePageCallback() {
+        return new QuizRepository.DataCallback<Page<Resource>>() {
             @Override
-            public void onFailure(@NotNull Call call, @NotNull IOException e) {
-                e.printStackTrace();
-                runOnUiThread(() ->
-                        Toast.makeText(MainActivity.this, "Failed to load resources: " + e.getMessage(), Toast.LENGTH_SHORT).show()
-                );
+            public void onData(Page<Resource> page) {
+                loadingMoreResources = false;
+                resourcesCursor = page.getNextCursor();
+                populateTable(page.getItems());
+                filesList.post(this::prefetchVisibleQuestions);
             }
 
             @Override
-            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
-                if (!response.isSuccessful()) {
-                    runOnUiThread(() ->
-                            Toast.makeText(MainActivity.this, "Server error: " + response.code(), Toast.LENGTH_SHORT).show()
-                    );
-                    return;
-                }
-
-                String responseBody = response.body().string();
-                try {
-                    JSONObject json = new JSONObject(responseBody);
-                    JSONArray resourcesArray = json.getJSONArray("questions");
-                    // Adjust key if needed. The endpoint returns { questions: [...] }
-
-                    runOnUiThread(() -> {
-                        populateTable(resourcesArray);
-                    });
-
-                } catch (JSONException e) {
-                    e.printStackTrace();
-                    runOnUiThread(() ->
-                            Toast.makeText(MainActivity.this, "JSON parse error", Toast.LENGTH_SHORT).show()
-                    );
-                }
+            public void onError(String message) {
+                loadingMoreResources = false;
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_SHORT).show();
             }
-        });
+        };
     }
 
-    private void populateTable(JSONArray resources) {
-        TableLayout table = findViewById(R.id.files_table);
+    // Warms the question cache for what is on screen, so opening a quiz doesn't start cold
+    private void prefetchVisibleQuestions() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) filesList.getLayoutManager();
+        List<Resource> resources = resourceAdapter.getCurrentList();
+        int first = Math.max(layoutManager.findFirstVisibleItemPosition(), 0);
+        int last = Math.min(layoutManager.findLastVisibleItemPosition(), resources.size() - 1);
 
-        // Remove old rows if any (except the header)
-        // Assuming the first row is the header row:
-        while (table.getChildCount() > 1) {
-            table.removeViewAt(1);
+        List<String> fileNames = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            fileNames.add(resources.get(i).getFileName());
         }
+        QuizRepository.getInstance(this).prefetchQuestions(fileNames);
+    }
 
-        // Loop through the resources and create rows
-        for (int i = 0; i < resources.length(); i++) {
-            try {
-                JSONObject resource = resources.getJSONObject(i);
-                String fileName = resource.getString("fileName");
-                String questionCount = resource.getString("questionCount");
-
-                TableRow row = new TableRow(this);
-                TableRow.LayoutParams params = new TableRow.LayoutParams(
-                        0,
-                        ViewGroup.LayoutParams.WRAP_CONTENT,
-                        2f
-                );
-                TableRow.LayoutParams buttonHolderParam = new TableRow.LayoutParams(
-                        0,
-                        ViewGroup.LayoutParams.WRAP_CONTENT,
-                        1f
-                );
-
-
-                TextView fileNameText = new TextView(this);
-                fileNameText.setText(fileName);
-                fileNameText.setLayoutParams(params);
-                fileNameText.setPadding(16,16,16,16);
-
-                TextView questionCountText = new TextView(this);
-                questionCountText.setText(questionCount);
-                questionCountText.setLayoutParams(params);
-                questionCountText.setPadding(16,16,16,16);
-
-                LinearLayout buttonHoldLayout = new LinearLayout(this);
-                buttonHoldLayout.setLayoutParams(buttonHolderParam);
-                buttonHoldLayout.setPadding(16,16,16,16);
-
-                ImageButton startButton = new ImageButton(this);
-                Drawable playIcon = getResources().getDrawable(R.drawable.ic_play, null);
-                startButton.setBackgroundResource(R.drawable.round_button);
-                startButton.setImageDrawable(playIcon);
-                startButton.setPadding(20,20,20,20);
-                startButton.setOnClickListener(view -> {
-                    Intent intent = new Intent(MainActivity.this, QuizActivity.class);
-                    intent.putExtra("fileName", fileName);
-                    startActivity(intent);
-                });
-
-                buttonHoldLayout.addView(startButton);
-
-                row.addView(fileNameText);
-                row.addView(questionCountText);
-                row.addView(buttonHoldLayout);
-                table.addView(row);
-
-            } catch (JSONException e) {
-                e.printStackTrace();
-            }
-        }
+    @Override
+    protected void onResume() {
+        super.onResume();
+        frameSampler.start(getWindow());
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        frameSampler.stop(getWindow());
+    }
+
+    // Debug view of the timing histograms, long press the title to open it
+    private void showMetrics() {
+        Metrics.dumpToLog();
+        new AlertDialog.Builder(this)
+                .setTitle("Metrics")
+                .setMessage(Metrics.summary())
+                .setPositiveButton("Export JSON", (dialog, which) -> {
+                    Intent send = new Intent(Intent.ACTION_SEND);
+                    send.setType("application/json");
+                    send.putExtra(Intent.EXTRA_TEXT, Metrics.toJson().toString());
+                    startActivity(Intent.createChooser(send, "Export metrics"));
+                })
+                .setNegativeButton("Reset", (dialog, which) -> Metrics.reset())
+                .show();
+    }
+
+    private void populateTable(List<Resource> resources) {
+        // ListAdapter diffs against the current list off the main thread and only rebinds changed rows
+        long renderStart = Metrics.startSpan();
+        resourceAdapter.submitList(resources,
+                () -> Metrics.endSpanAtNextDraw("render.populateTable", renderStart, filesList));
     }
 
 }
@@ -0,0 +1,100 @@
+package com.yamazhen.quizify_mobile;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Process wide timing histograms, keyed by name, e.g. "http.ttfb /questions", "parse.questions"
+ * or "render.populateTable". Recording is a map lookup and a few array writes, so it stays on
+ * in release builds. Dump them to logcat or export them as JSON.
+ */
+public final class Metrics {
+    private static final String TAG = "QuizifyMetrics";
+
+    private static final Map<String, Histogram> histograms = new TreeMap<>();
+
+    private Metrics() {
+    }
+
+    /** Start of a span, pass the result to {@link #endSpan}. */
+    public static long startSpan() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    public static void endSpan(String name, long startNanos) {
+        record(name, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    /**
+     * Ends the span at the view's next draw, so work that is only scheduled (layout and binding
+     * of new RecyclerView rows) is counted too. Main thread only.
+     */
+    public static void endSpanAtNextDraw(String name, long startNanos, View view) {
+        view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                view.getViewTreeObserver().removeOnPreDrawListener(this);
+                endSpan(name, startNanos);
+                return true;
+            }
+        });
+    }
+
+    public static void record(String name, long nanos) {
+        histogram(name).record(nanos);
+    }
+
+    public static Histogram histogram(String name) {
+        synchronized (histograms) {
+            Histogram histogram = histograms.get(name);
+            if (histogram == null) {
+                histogram = new Histogram();
+                histograms.put(name, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    public static void reset() {
+        synchronized (histograms) {
+            histograms.clear();
+        }
+    }
+
+    public static void dumpToLog() {
+        Log.i(TAG, summary());
+    }
+
+    /** One line per histogram, for logcat or the debug dialog. */
+    public static String summary() {
+        StringBuilder out = new StringBuilder();
+        synchronized (histograms) {
+            for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                out.append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    public static JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        synchronized (histograms) {
+            try {
+                for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+                    json.put(entry.getKey(), entry.getValue().toJson());
+                }
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        }
+        return json;
+    }
+}
@@ -0,0 +1,30 @@
+package com.yamazhen.quizify_mobile;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+
+/** A list of items plus the server cursor for the next page, null once everything is loaded. */
+public class Page<T> {
+    private final List<T> items;
+    @Nullable
+    private final String nextCursor;
+
+    public Page(List<T> items, @Nullable String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    @Nullable
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
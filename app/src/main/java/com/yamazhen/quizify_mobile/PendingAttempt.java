@@ -0,0 +1,26 @@
+package com.yamazhen.quizify_mobile;
+
+/** A quiz attempt graded on the device that the server has not seen yet. */
+public class PendingAttempt {
+    private final long id;
+    private final String fileName;
+    private final String body;
+
+    public PendingAttempt(long id, String fileName, String body) {
+        this.id = id;
+        this.fileName = fileName;
+        this.body = body;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public String getBody() {
+        return body;
+    }
+}
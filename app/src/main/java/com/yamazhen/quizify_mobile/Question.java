@@ -0,0 +1,34 @@
+package com.yamazhen.quizify_mobile;
+
+import java.util.Collections;
+import java.util.List;
+
+public class Question {
+    private final int id;
+    private final String questionText;
+    private final List<String> choices;
+    private final String correctAnswer;
+
+    public Question(int id, String questionText, List<String> choices, String correctAnswer) {
+        this.id = id;
+        this.questionText = questionText;
+        this.choices = Collections.unmodifiableList(choices);
+        this.correctAnswer = correctAnswer;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getQuestionText() {
+        return questionText;
+    }
+
+    public List<String> getChoices() {
+        return choices;
+    }
+
+    public String getCorrectAnswer() {
+        return correctAnswer;
+    }
+}
@@ -0,0 +1,146 @@
+package com.yamazhen.quizify_mobile;
+
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.RadioButton;
+import android.widget.RadioGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class QuestionAdapter extends RecyclerView.Adapter<QuestionAdapter.QuestionViewHolder> {
+    private static final int NO_ANSWER = -1;
+
+    public interface OnAnswerSelectedListener {
+        void onAnswerSelected(int questionId, int choiceIndex);
+    }
+
+    private final List<Question> questions = new ArrayList<>();
+    // questionId -> index of the chosen answer, the views never hold the source of truth
+    private final SparseIntArray selectedChoices = new SparseIntArray();
+    // questionId -> graded result, empty until the answers are submitted
+    private final SparseArray<GradeResult> results = new SparseArray<>();
+
+    private final OnAnswerSelectedListener answerListener;
+
+    public QuestionAdapter(OnAnswerSelectedListener answerListener) {
+        this.answerListener = answerListener;
+        setHasStableIds(true);
+    }
+
+    /** Restores answers chosen before the screen was recreated. */
+    public void setSelectedChoices(SparseIntArray choices) {
+        selectedChoices.clear();
+        for (int i = 0; i < choices.size(); i++) {
+            selectedChoices.put(choices.keyAt(i), choices.valueAt(i));
+        }
+        notifyItemRangeChanged(0, questions.size());
+    }
+
+    public void setQuestions(List<Question> newQuestions) {
+        // Answers are keyed by question id, so they survive the list being refreshed after a sync
+        questions.clear();
+        questions.addAll(newQuestions);
+        notifyDataSetChanged();
+    }
+
+    public List<Question> getQuestions() {
+        return questions;
+    }
+
+    public void showResults(List<GradeResult> gradeResults) {
+        results.clear();
+        for (GradeResult result : gradeResults) {
+            results.put(result.getQuestionId(), result);
+        }
+        notifyItemRangeChanged(0, questions.size());
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return questions.get(position).getId();
+    }
+
+    @Override
+    public int getItemCount() {
+        return questions.size();
+    }
+
+    @NonNull
+    @Override
+    public QuestionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_question, parent, false);
+        return new QuestionViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull QuestionViewHolder holder, int position) {
+        Question question = questions.get(position);
+        holder.questionText.setText((position + 1) + ". " + question.getQuestionText());
+
+        // Detach the listener while restoring state so recycled groups don't write into the model
+        holder.choices.setOnCheckedChangeListener(null);
+        holder.bindChoices(question.getChoices());
+        int selected = selectedChoices.get(question.getId(), NO_ANSWER);
+        if (selected != NO_ANSWER) {
+            ((RadioButton) holder.choices.getChildAt(selected)).setChecked(true);
+        }
+        holder.choices.setOnCheckedChangeListener((group, checkedId) -> {
+            int index = group.indexOfChild(group.findViewById(checkedId));
+            if (index >= 0) {
+                selectedChoices.put(question.getId(), index);
+                answerListener.onAnswerSelected(question.getId(), index);
+            }
+        });
+
+        GradeResult result = results.get(question.getId());
+        if (result == null) {
+            holder.feedback.setVisibility(View.GONE);
+        } else {
+            holder.feedback.setVisibility(View.VISIBLE);
+            if (result.isCorrect()) {
+                holder.feedback.setText("Correct!");
+                holder.feedback.setTextColor(holder.itemView.getResources().getColor(android.R.color.holo_green_light, null));
+            } else {
+                holder.feedback.setText("Incorrect. The correct answer is: " + result.getCorrectAnswer());
+                holder.feedback.setTextColor(holder.itemView.getResources().getColor(android.R.color.holo_red_light, null));
+            }
+        }
+    }
+
+    static class QuestionViewHolder extends RecyclerView.ViewHolder {
+        final TextView questionText;
+        final RadioGroup choices;
+        final TextView feedback;
+
+        QuestionViewHolder(@NonNull View itemView) {
+            super(itemView);
+            questionText = itemView.findViewById(R.id.question_text);
+            choices = itemView.findViewById(R.id.question_choices);
+            feedback = itemView.findViewById(R.id.question_feedback);
+        }
+
+        void bindChoices(List<String> choiceTexts) {
+            choices.clearCheck();
+            // Reuse the RadioButtons the recycled group already has, only add or drop the difference
+            while (choices.getChildCount() > choiceTexts.size()) {
+                choices.removeViewAt(choices.getChildCount() - 1);
+            }
+            while (choices.getChildCount() < choiceTexts.size()) {
+                RadioButton rb = new RadioButton(choices.getContext());
+                rb.setId(View.generateViewId());
+                choices.addView(rb);
+            }
+            for (int i = 0; i < choiceTexts.size(); i++) {
+                ((RadioButton) choices.getChildAt(i)).setText(choiceTexts.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.yamazhen.quizify_mobile;
+
+import android.util.LruCache;
+
+import java.util.List;
+
+/**
+ * In-memory question sets keyed by fileName, bounded by an estimate of their size in bytes
+ * rather than by entry count, since one lecture can hold a handful of questions or hundreds.
+ */
+public class QuestionCache {
+    // Rough per-object overhead for the Question, its list and the String headers
+    private static final int OBJECT_OVERHEAD = 64;
+
+    private final LruCache<String, List<Question>> cache;
+
+    public QuestionCache(int maxBytes) {
+        cache = new LruCache<String, List<Question>>(maxBytes) {
+            @Override
+            protected int sizeOf(String fileName, List<Question> questions) {
+                return estimateBytes(questions);
+            }
+        };
+    }
+
+    public List<Question> get(String fileName) {
+        return cache.get(fileName);
+    }
+
+    public void put(String fileName, List<Question> questions) {
+        if (questions.isEmpty()) {
+            cache.remove(fileName);
+        } else {
+            cache.put(fileName, questions);
+        }
+    }
+
+    public boolean contains(String fileName) {
+        return cache.get(fileName) != null;
+    }
+
+    static int estimateBytes(List<Question> questions) {
+        int bytes = OBJECT_OVERHEAD;
+        for (Question question : questions) {
+            bytes += OBJECT_OVERHEAD + charBytes(question.getQuestionText()) + charBytes(question.getCorrectAnswer());
+            for (String choice : question.getChoices()) {
+                bytes += OBJECT_OVERHEAD + charBytes(choice);
+            }
+        }
+        return bytes;
+    }
+
+    private static int charBytes(String value) {
+        return value == null ? 0 : value.length() * 2;
+    }
+}
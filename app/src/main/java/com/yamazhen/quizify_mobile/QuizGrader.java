@@ -0,0 +1,51 @@
+package com.yamazhen.quizify_mobile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Grades answers on the device with the same rules as the server's grading.js: trimmed,
+ * case-insensitive matching, and an answer may list several strings when any one of them
+ * being right is enough. Every question already carries its correctAnswer, so there is no
+ * need to wait for the network to show results.
+ */
+public final class QuizGrader {
+
+    private QuizGrader() {
+    }
+
+    public static boolean isCorrect(List<String> answers, String correctAnswer) {
+        if (answers == null || correctAnswer == null) {
+            return false;
+        }
+        String expected = normalize(correctAnswer);
+        for (String answer : answers) {
+            // Blank answers never match, like a falsy answer on the server
+            if (answer != null && !answer.isEmpty() && normalize(answer).equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static boolean isCorrect(String answer, String correctAnswer) {
+        return isCorrect(answer == null ? null : Collections.singletonList(answer), correctAnswer);
+    }
+
+    /** Grades every question in order, questions without an entry in answers are graded as wrong. */
+    public static List<GradeResult> grade(List<Question> questions, Map<Integer, List<String>> answers) {
+        List<GradeResult> results = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            boolean correct = isCorrect(answers.get(question.getId()), question.getCorrectAnswer());
+            results.add(new GradeResult(question.getId(), correct, question.getCorrectAnswer()));
+        }
+        return results;
+    }
+
+    private static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,313 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Offline-first access to resources and questions. Each load answers from the local
+ * database first and then syncs with the server in the background, one page at a time.
+ * Every page is merged into the local store and delivered as the full local list together
+ * with the cursor for the next page.
+ */
+public class QuizRepository {
+
+    public interface DataCallback<T> {
+        void onData(T data);
+
+        void onError(String message);
+    }
+
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_PREFETCH = 5;
+    private static final int MAX_RECENT = 3;
+    private static final String KEY_RECENT = "recent_lectures";
+
+    private static final DataCallback<Page<Question>> IGNORE_PAGE = new DataCallback<Page<Question>>() {
+        @Override
+        public void onData(Page<Question> data) {
+        }
+
+        @Override
+        public void onError(String message) {
+        }
+    };
+
+    private static volatile QuizRepository instance;
+
+    private final QuizifyDatabase database;
+    private final OkHttpClient client;
+    // All database access goes through one thread, the network is handled by OkHttp's dispatcher
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // An eighth of the heap, so prefetched lectures can't crowd out the rest of the app
+    private final QuestionCache questionCache = new QuestionCache((int) (Runtime.getRuntime().maxMemory() / 8));
+    private final SharedPreferences preferences;
+
+    public static QuizRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (QuizRepository.class) {
+                if (instance == null) {
+                    instance = new QuizRepository(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private QuizRepository(Context appContext) {
+        database = QuizifyDatabase.getInstance(appContext);
+        client = ApiClient.getInstance(appContext);
+        preferences = appContext.getSharedPreferences("quiz_repository", Context.MODE_PRIVATE);
+    }
+
+    /** Local resources straight away, then the first server page merged into them. */
+    public void loadResources(DataCallback<Page<Resource>> callback) {
+        diskExecutor.execute(() -> {
+            List<Resource> local = database.getResources();
+            if (!local.isEmpty()) {
+                postData(callback, new Page<>(local, null));
+            }
+            fetchResourcePage(null, !local.isEmpty(), callback);
+        });
+    }
+
+    /** Fetches the page after cursor, as handed out by the previous page. */
+    public void loadMoreResources(String cursor, DataCallback<Page<Resource>> callback) {
+        fetchResourcePage(cursor, true, callback);
+    }
+
+    /**
+     * Questions from memory (when prefetched) or disk straight away, then the first page of
+     * questions newer than those.
+     */
+    public void loadQuestions(String fileName, DataCallback<Page<Question>> callback) {
+        markRecentlyUsed(fileName);
+        List<Question> cached = questionCache.get(fileName);
+        if (cached != null) {
+            callback.onData(new Page<>(cached, null));
+        }
+
+        diskExecutor.execute(() -> {
+            List<Question> local = cached != null ? cached : database.getQuestions(fileName);
+            if (cached == null && !local.isEmpty()) {
+                questionCache.put(fileName, local);
+                postData(callback, new Page<>(local, null));
+            }
+            fetchQuestionPage(fileName, database.getLastQuestionId(fileName), !local.isEmpty(), callback);
+        });
+    }
+
+    /** Questions from memory or disk only, for restoring a screen that was already synced. */
+    public void loadCachedQuestions(String fileName, DataCallback<Page<Question>> callback) {
+        List<Question> cached = questionCache.get(fileName);
+        if (cached != null) {
+            callback.onData(new Page<>(cached, null));
+            return;
+        }
+        diskExecutor.execute(() -> {
+            List<Question> local = database.getQuestions(fileName);
+            questionCache.put(fileName, local);
+            postData(callback, new Page<>(local, null));
+        });
+    }
+
+    /** Cancels the network calls made on behalf of callback, it will not hear about them again. */
+    public void cancel(DataCallback<?> callback) {
+        for (Call call : client.dispatcher().queuedCalls()) {
+            if (call.request().tag() == callback) {
+                call.cancel();
+            }
+        }
+        for (Call call : client.dispatcher().runningCalls()) {
+            if (call.request().tag() == callback) {
+                call.cancel();
+            }
+        }
+    }
+
+    /**
+     * Warms the memory cache for the recently opened lectures and the given ones, reading from
+     * disk and fetching from the server only for lectures that have never been synced.
+     */
+    public void prefetchQuestions(List<String> fileNames) {
+        Set<String> targets = new LinkedHashSet<>(getRecentlyUsed());
+        targets.addAll(fileNames);
+
+        int started = 0;
+        for (String fileName : targets) {
+            if (started >= MAX_PREFETCH || questionCache.contains(fileName)) {
+                continue;
+            }
+            started++;
+            diskExecutor.execute(() -> {
+                List<Question> local = database.getQuestions(fileName);
+                if (!local.isEmpty()) {
+                    questionCache.put(fileName, local);
+                } else {
+                    fetchQuestionPage(fileName, 0, true, IGNORE_PAGE);
+                }
+            });
+        }
+    }
+
+    public void loadMoreQuestions(String fileName, String cursor, DataCallback<Page<Question>> callback) {
+        fetchQuestionPage(fileName, Long.parseLong(cursor), true, callback);
+    }
+
+    private void fetchResourcePage(String after, boolean hasLocalCopy, DataCallback<Page<Resource>> callback) {
+        HttpUrl.Builder url = HttpUrl.get(ApiClient.url("/resources")).newBuilder()
+                .addQueryParameter("limit", String.valueOf(PAGE_SIZE));
+        if (after != null) {
+            url.addQueryParameter("after", after);
+        }
+        Request request = new Request.Builder().url(url.build()).tag(callback).build();
+
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                e.printStackTrace();
+                // Offline with a local copy on screen is not worth interrupting the user for
+                if (!hasLocalCopy) {
+                    postError(callback, "Failed to load resources: " + e.getMessage());
+                }
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                try (Response r = response) {
+                    if (!r.isSuccessful()) {
+                        postError(callback, "Server error: " + r.code());
+                        return;
+                    }
+
+                    long parseStart = Metrics.startSpan();
+                    Page<Resource> page = JsonDecoder.readResourcePage(r.body().charStream());
+                    Metrics.endSpan("parse.resources", parseStart);
+                    diskExecutor.execute(() -> {
+                        database.mergeResourcePage(after, page);
+                        postData(callback, new Page<>(database.getResources(), page.getNextCursor()));
+                    });
+                } catch (IOException | IllegalStateException e) {
+                    e.printStackTrace();
+                    postError(callback, "JSON parse error");
+                }
+            }
+        });
+    }
+
+    private void fetchQuestionPage(String fileName, long afterId, boolean hasLocalCopy,
+                                   DataCallback<Page<Question>> callback) {
+        // Only rows newer than what is already on the device
+        HttpUrl url = HttpUrl.get(ApiClient.url("/questions")).newBuilder()
+                .addPathSegment(fileName)
+                .addQueryParameter("after", String.valueOf(afterId))
+                .addQueryParameter("limit", String.valueOf(PAGE_SIZE))
+                .build();
+        Request request = new Request.Builder()
+                .url(url)
+                // Servers that don't know the binary page just answer with JSON
+                .header("Accept", BinaryDecoder.QUESTIONS_TYPE + ", application/json;q=0.9")
+                .tag(callback)
+                .build();
+
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(@NotNull Call call, @NotNull IOException e) {
+                if (call.isCanceled()) {
+                    return;
+                }
+                e.printStackTrace();
+                if (!hasLocalCopy) {
+                    postError(callback, "Failed to load questions");
+                }
+            }
+
+            @Override
+            public void onResponse(@NotNull Call call, @NotNull Response response) throws IOException {
+                try (Response r = response) {
+                    if (!r.isSuccessful()) {
+                        postError(callback, "Server error: " + r.code());
+                        return;
+                    }
+
+                    long parseStart = Metrics.startSpan();
+                    MediaType type = r.body().contentType();
+                    boolean binary = type != null && BinaryDecoder.QUESTIONS_TYPE.equals(type.type() + "/" + type.subtype());
+                    Page<Question> page = binary
+                            ? BinaryDecoder.readQuestionPage(r.body().byteStream())
+                            : JsonDecoder.readQuestionPage(r.body().charStream());
+                    Metrics.endSpan("parse.questions", parseStart);
+                    if (page.getItems().isEmpty() && hasLocalCopy) {
+                        return;
+                    }
+                    diskExecutor.execute(() -> {
+                        database.insertQuestions(fileName, page.getItems());
+                        List<Question> questions = database.getQuestions(fileName);
+                        questionCache.put(fileName, questions);
+                        postData(callback, new Page<>(questions, page.getNextCursor()));
+                    });
+                } catch (IOException | IllegalStateException e) {
+                    e.printStackTrace();
+                    postError(callback, "JSON parse error");
+                }
+            }
+        });
+    }
+
+    private void markRecentlyUsed(String fileName) {
+        List<String> recent = getRecentlyUsed();
+        recent.remove(fileName);
+        recent.add(0, fileName);
+        JSONArray json = new JSONArray();
+        for (int i = 0; i < Math.min(recent.size(), MAX_RECENT); i++) {
+            json.put(recent.get(i));
+        }
+        preferences.edit().putString(KEY_RECENT, json.toString()).apply();
+    }
+
+    private List<String> getRecentlyUsed() {
+        List<String> recent = new ArrayList<>();
+        try {
+            JSONArray json = new JSONArray(preferences.getString(KEY_RECENT, "[]"));
+            for (int i = 0; i < json.length(); i++) {
+                recent.add(json.getString(i));
+            }
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        return recent;
+    }
+
+    private <T> void postData(DataCallback<T> callback, T data) {
+        mainHandler.post(() -> callback.onData(data));
+    }
+
+    private void postError(DataCallback<?> callback, String message) {
+        mainHandler.post(() -> callback.onError(message));
+    }
+}
@@ -0,0 +1,245 @@
+package com.yamazhen.quizify_mobile;
+
+import android.app.Application;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.SavedStateHandle;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Quiz screen state: the questions, the chosen answers, the graded results and the page calls
+ * in flight. It outlives rotation, so nothing is fetched again, and the answers and results are
+ * kept in the SavedStateHandle as a few flat arrays so they also survive process death. The
+ * questions themselves are not saved, they come back from the local store.
+ */
+public class QuizViewModel extends AndroidViewModel {
+    private static final String KEY_FILE_NAME = "fileName";
+    private static final String KEY_SYNCED = "synced";
+    private static final String KEY_CURSOR = "cursor";
+    // questionId, choiceIndex pairs
+    private static final String KEY_ANSWERS = "answers";
+    private static final String KEY_RESULT_IDS = "resultIds";
+    private static final String KEY_RESULT_CORRECT = "resultCorrect";
+    private static final String KEY_RESULT_ANSWERS = "resultAnswers";
+
+    private final SavedStateHandle state;
+    private final QuizRepository repository;
+    private final String fileName;
+
+    private final MutableLiveData<List<Question>> questions = new MutableLiveData<>();
+    private final MutableLiveData<List<GradeResult>> results = new MutableLiveData<>();
+    private final MutableLiveData<String> message = new MutableLiveData<>();
+    private final SparseIntArray selectedChoices = new SparseIntArray();
+
+    private String nextCursor;
+    private boolean loadingMore;
+
+    private final QuizRepository.DataCallback<Page<Question>> pageCallback = new QuizRepository.DataCallback<Page<Question>>() {
+        @Override
+        public void onData(Page<Question> page) {
+            loadingMore = false;
+            nextCursor = page.getNextCursor();
+            state.set(KEY_SYNCED, true);
+            state.set(KEY_CURSOR, nextCursor);
+            questions.setValue(page.getItems());
+        }
+
+        @Override
+        public void onError(String error) {
+            loadingMore = false;
+            message.setValue(error);
+        }
+    };
+
+    public QuizViewModel(@NonNull Application application, @NonNull SavedStateHandle state) {
+        super(application);
+        this.state = state;
+        repository = QuizRepository.getInstance(application);
+        // Seeded from the Intent extras by the default factory
+        fileName = state.get(KEY_FILE_NAME);
+
+        restoreAnswers();
+        restoreResults();
+
+        Boolean synced = state.get(KEY_SYNCED);
+        if (synced != null && synced) {
+            // Restored after process death, the local copy is what was on screen
+            nextCursor = state.get(KEY_CURSOR);
+            repository.loadCachedQuestions(fileName, new QuizRepository.DataCallback<Page<Question>>() {
+                @Override
+                public void onData(Page<Question> page) {
+                    questions.setValue(page.getItems());
+                }
+
+                @Override
+                public void onError(String error) {
+                    message.setValue(error);
+                }
+            });
+        } else {
+            repository.loadQuestions(fileName, pageCallback);
+        }
+    }
+
+    public LiveData<List<Question>> getQuestions() {
+        return questions;
+    }
+
+    public LiveData<List<GradeResult>> getResults() {
+        return results;
+    }
+
+    /** One-off messages for a Toast, call {@link #onMessageShown()} once displayed. */
+    public LiveData<String> getMessage() {
+        return message;
+    }
+
+    public void onMessageShown() {
+        message.setValue(null);
+    }
+
+    public SparseIntArray getSelectedChoices() {
+        return selectedChoices;
+    }
+
+    public void loadMore() {
+        if (nextCursor == null || loadingMore) {
+            return;
+        }
+        loadingMore = true;
+        repository.loadMoreQuestions(fileName, nextCursor, pageCallback);
+    }
+
+    public void selectAnswer(int questionId, int choiceIndex) {
+        selectedChoices.put(questionId, choiceIndex);
+        int[] pairs = new int[selectedChoices.size() * 2];
+        for (int i = 0; i < selectedChoices.size(); i++) {
+            pairs[i * 2] = selectedChoices.keyAt(i);
+            pairs[i * 2 + 1] = selectedChoices.valueAt(i);
+        }
+        state.set(KEY_ANSWERS, pairs);
+    }
+
+    /**
+     * Grades on the device straight away, then queues the attempt for the server. Its own
+     * grading replaces the local one only if the two disagree, e.g. after an answer key changed.
+     */
+    public void submitAnswers() {
+        List<Question> current = questions.getValue();
+        if (current == null) {
+            return;
+        }
+
+        Map<Integer, List<String>> answers = new HashMap<>();
+        JSONArray userAnswers = new JSONArray();
+        for (Question question : current) {
+            String answer = getSelectedAnswer(question);
+            if (answer != null) {
+                answers.put(question.getId(), Collections.singletonList(answer));
+            }
+            JSONObject ans = new JSONObject();
+            try {
+                ans.put("questionId", question.getId());
+                ans.put("answer", answer);
+                userAnswers.put(ans);
+            } catch (JSONException e) {
+                e.printStackTrace();
+            }
+        }
+
+        List<GradeResult> graded = QuizGrader.grade(current, answers);
+        saveResults(graded);
+        results.setValue(graded);
+
+        // The endpoint expects { "answers": [ ... ] }
+        JSONObject wrapper = new JSONObject();
+        try {
+            wrapper.put("answers", userAnswers);
+        } catch (JSONException e) {
+            e.printStackTrace();
+        }
+        AttemptUploader.getInstance(getApplication()).submit(fileName, wrapper.toString(), serverResults -> {
+            if (!sameGrades(graded, serverResults)) {
+                saveResults(serverResults);
+                results.setValue(serverResults);
+            }
+        });
+    }
+
+    private static boolean sameGrades(List<GradeResult> local, List<GradeResult> server) {
+        SparseBooleanArray serverCorrect = new SparseBooleanArray();
+        for (GradeResult result : server) {
+            serverCorrect.put(result.getQuestionId(), result.isCorrect());
+        }
+        for (GradeResult result : local) {
+            if (serverCorrect.indexOfKey(result.getQuestionId()) >= 0
+                    && serverCorrect.get(result.getQuestionId()) != result.isCorrect()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String getSelectedAnswer(Question question) {
+        int choice = selectedChoices.get(question.getId(), -1);
+        return choice < 0 || choice >= question.getChoices().size() ? null : question.getChoices().get(choice);
+    }
+
+    private void saveResults(List<GradeResult> graded) {
+        int[] ids = new int[graded.size()];
+        boolean[] correct = new boolean[graded.size()];
+        String[] answers = new String[graded.size()];
+        for (int i = 0; i < graded.size(); i++) {
+            ids[i] = graded.get(i).getQuestionId();
+            correct[i] = graded.get(i).isCorrect();
+            answers[i] = graded.get(i).getCorrectAnswer();
+        }
+        state.set(KEY_RESULT_IDS, ids);
+        state.set(KEY_RESULT_CORRECT, correct);
+        state.set(KEY_RESULT_ANSWERS, answers);
+    }
+
+    private void restoreAnswers() {
+        int[] pairs = state.get(KEY_ANSWERS);
+        if (pairs == null) {
+            return;
+        }
+        for (int i = 0; i + 1 < pairs.length; i += 2) {
+            selectedChoices.put(pairs[i], pairs[i + 1]);
+        }
+    }
+
+    private void restoreResults() {
+        int[] ids = state.get(KEY_RESULT_IDS);
+        boolean[] correct = state.get(KEY_RESULT_CORRECT);
+        String[] answers = state.get(KEY_RESULT_ANSWERS);
+        if (ids == null || correct == null || answers == null) {
+            return;
+        }
+        List<GradeResult> restored = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            restored.add(new GradeResult(ids[i], correct[i], answers[i]));
+        }
+        results.setValue(restored);
+    }
+
+    @Override
+    protected void onCleared() {
+        // The screen is finished for good, nothing is left to deliver pages to. Queued attempts still go up.
+        repository.cancel(pageCallback);
+    }
+}
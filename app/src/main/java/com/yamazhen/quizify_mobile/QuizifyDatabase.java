@@ -0,0 +1,206 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+import org.json.JSONArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local copy of the resources list and every question set that has been opened, so screens
+ * can render from disk straight away and only ask the server for what changed. Also holds
+ * graded attempts until they have been uploaded.
+ */
+public class QuizifyDatabase extends SQLiteOpenHelper {
+    private static final String DATABASE_NAME = "quizify.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static volatile QuizifyDatabase instance;
+
+    public static QuizifyDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (QuizifyDatabase.class) {
+                if (instance == null) {
+                    instance = new QuizifyDatabase(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    private QuizifyDatabase(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE resources (" +
+                "fileName TEXT PRIMARY KEY, " +
+                "questionCount INTEGER NOT NULL)");
+        // ids mirror the server's AUTOINCREMENT ids, so MAX(id) per file is the sync cursor
+        db.execSQL("CREATE TABLE questions (" +
+                "id INTEGER PRIMARY KEY, " +
+                "fileName TEXT NOT NULL, " +
+                "questionText TEXT NOT NULL, " +
+                "choices TEXT NOT NULL, " +
+                "correctAnswer TEXT)");
+        db.execSQL("CREATE INDEX idx_questions_fileName ON questions (fileName, id)");
+        // Graded on the device and waiting to be sent to the server, so this one is never dropped
+        db.execSQL("CREATE TABLE IF NOT EXISTS attempts (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "fileName TEXT NOT NULL, " +
+                "body TEXT NOT NULL, " +
+                "createdAt INTEGER NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The cached tables can be pulled from the server again, pending attempts are kept
+        db.execSQL("DROP TABLE IF EXISTS questions");
+        db.execSQL("DROP TABLE IF EXISTS resources");
+        onCreate(db);
+    }
+
+    public List<Resource> getResources() {
+        List<Resource> resources = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT fileName, questionCount FROM resources ORDER BY fileName", null)) {
+            while (cursor.moveToNext()) {
+                resources.add(new Resource(cursor.getString(0), cursor.getInt(1)));
+            }
+        }
+        return resources;
+    }
+
+    /**
+     * Applies one server page of resources. A page is the complete set of files between the cursor
+     * it was requested with and its last item (or the end, for the last page), so local rows in that
+     * range that the page does not contain were removed on the server.
+     */
+    public void mergeResourcePage(String afterFileName, Page<Resource> page) {
+        List<Resource> resources = page.getItems();
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            List<String> clauses = new ArrayList<>();
+            List<String> args = new ArrayList<>();
+            if (afterFileName != null) {
+                clauses.add("fileName > ?");
+                args.add(afterFileName);
+            }
+            if (page.hasMore() && !resources.isEmpty()) {
+                clauses.add("fileName <= ?");
+                args.add(resources.get(resources.size() - 1).getFileName());
+            }
+            db.delete("resources", clauses.isEmpty() ? null : TextUtils.join(" AND ", clauses),
+                    args.toArray(new String[0]));
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT OR REPLACE INTO resources (fileName, questionCount) VALUES (?, ?)");
+            for (Resource resource : resources) {
+                insert.bindString(1, resource.getFileName());
+                insert.bindLong(2, resource.getQuestionCount());
+                insert.executeInsert();
+                insert.clearBindings();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public List<Question> getQuestions(String fileName) {
+        List<Question> questions = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT id, questionText, choices, correctAnswer FROM questions WHERE fileName = ? ORDER BY id",
+                new String[]{fileName})) {
+            while (cursor.moveToNext()) {
+                questions.add(new Question(cursor.getInt(0), cursor.getString(1),
+                        decodeChoices(cursor.getString(2)), cursor.getString(3)));
+            }
+        }
+        return questions;
+    }
+
+    /** Highest question id stored for the file, or 0 when nothing has been synced yet. */
+    public long getLastQuestionId(String fileName) {
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT MAX(id) FROM questions WHERE fileName = ?", new String[]{fileName})) {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : 0;
+        }
+    }
+
+    public void insertQuestions(String fileName, List<Question> questions) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = new ContentValues();
+            for (Question question : questions) {
+                values.clear();
+                values.put("id", question.getId());
+                values.put("fileName", fileName);
+                values.put("questionText", question.getQuestionText());
+                values.put("choices", new JSONArray(question.getChoices()).toString());
+                values.put("correctAnswer", question.getCorrectAnswer());
+                db.insertWithOnConflict("questions", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /** Stores a graded attempt until it has been sent, body is the /submit-answers request. */
+    public long insertAttempt(String fileName, String body) {
+        ContentValues values = new ContentValues();
+        values.put("fileName", fileName);
+        values.put("body", body);
+        values.put("createdAt", System.currentTimeMillis());
+        return getWritableDatabase().insert("attempts", null, values);
+    }
+
+    public List<PendingAttempt> getPendingAttempts() {
+        List<PendingAttempt> attempts = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery(
+                "SELECT id, fileName, body FROM attempts ORDER BY id", null)) {
+            while (cursor.moveToNext()) {
+                attempts.add(new PendingAttempt(cursor.getLong(0), cursor.getString(1), cursor.getString(2)));
+            }
+        }
+        return attempts;
+    }
+
+    public void deleteAttempt(long id) {
+        getWritableDatabase().delete("attempts", "id = ?", new String[]{String.valueOf(id)});
+    }
+
+    public void deleteAttempts(List<PendingAttempt> attempts) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (PendingAttempt attempt : attempts) {
+                db.delete("attempts", "id = ?", new String[]{String.valueOf(attempt.getId())});
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static List<String> decodeChoices(String json) {
+        try {
+            return JsonDecoder.readStringArray(json);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new ArrayList<>();
+        }
+    }
+}
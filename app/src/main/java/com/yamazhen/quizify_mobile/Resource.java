@@ -0,0 +1,34 @@
+package com.yamazhen.quizify_mobile;
+
+import java.util.Objects;
+
+public class Resource {
+    private final String fileName;
+    private final int questionCount;
+
+    public Resource(String fileName, int questionCount) {
+        this.fileName = fileName;
+        this.questionCount = questionCount;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Resource resource = (Resource) o;
+        return questionCount == resource.questionCount && Objects.equals(fileName, resource.fileName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileName, questionCount);
+    }
+}
@@ -0,0 +1,79 @@
+package com.yamazhen.quizify_mobile;
+
+import android.graphics.drawable.Drawable;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageButton;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+public class ResourceAdapter extends ListAdapter<Resource, ResourceAdapter.ResourceViewHolder> {
+
+    public interface OnResourceClickListener {
+        void onResourceClick(Resource resource);
+    }
+
+    private static final DiffUtil.ItemCallback<Resource> DIFF_CALLBACK = new DiffUtil.ItemCallback<Resource>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Resource oldItem, @NonNull Resource newItem) {
+            return oldItem.getFileName().equals(newItem.getFileName());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Resource oldItem, @NonNull Resource newItem) {
+            return oldItem.equals(newItem);
+        }
+    };
+
+    private final OnResourceClickListener clickListener;
+    private Drawable playIcon; // Inflated once, every row shares its constant state
+
+    public ResourceAdapter(OnResourceClickListener clickListener) {
+        super(DIFF_CALLBACK);
+        this.clickListener = clickListener;
+    }
+
+    @NonNull
+    @Override
+    public ResourceViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (playIcon == null) {
+            playIcon = AppCompatResources.getDrawable(parent.getContext(), R.drawable.ic_play);
+        }
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_resource, parent, false);
+        ResourceViewHolder holder = new ResourceViewHolder(view);
+        holder.startButton.setImageDrawable(playIcon.getConstantState().newDrawable());
+        holder.startButton.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                clickListener.onResourceClick(getItem(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ResourceViewHolder holder, int position) {
+        Resource resource = getItem(position);
+        holder.fileNameText.setText(resource.getFileName());
+        holder.questionCountText.setText(String.valueOf(resource.getQuestionCount()));
+    }
+
+    static class ResourceViewHolder extends RecyclerView.ViewHolder {
+        final TextView fileNameText;
+        final TextView questionCountText;
+        final ImageButton startButton;
+
+        ResourceViewHolder(@NonNull View itemView) {
+            super(itemView);
+            fileNameText = itemView.findViewById(R.id.resource_file_name);
+            questionCountText = itemView.findViewById(R.id.resource_question_count);
+            startButton = itemView.findViewById(R.id.resource_start_button);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.yamazhen.quizify_mobile;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+
+/**
+ * Records DNS, connect, time to first byte, body and total time of every call into
+ * {@link Metrics}, keyed by endpoint. A new instance is made per call, so the timestamps
+ * need no locking.
+ */
+public class TimingEventListener extends EventListener {
+    public static final Factory FACTORY = call -> new TimingEventListener(endpointOf(call));
+
+    private final String endpoint;
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long requestStart;
+    private long bodyStart;
+
+    private TimingEventListener(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    // Only the first path segment, so /questions/<fileName> and /uploads/<hash>/... don't explode the key space
+    private static String endpointOf(Call call) {
+        List<String> segments = call.request().url().pathSegments();
+        return call.request().method() + " /" + (segments.isEmpty() ? "" : segments.get(0));
+    }
+
+    private static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    private void record(String phase, long start) {
+        Metrics.record("http." + phase + " " + endpoint, now() - start);
+    }
+
+    @Override
+    public void callStart(@NonNull Call call) {
+        callStart = now();
+    }
+
+    @Override
+    public void dnsStart(@NonNull Call call, @NonNull String domainName) {
+        dnsStart = now();
+    }
+
+    @Override
+    public void dnsEnd(@NonNull Call call, @NonNull String domainName, @NonNull List<InetAddress> inetAddressList) {
+        record("dns", dnsStart);
+    }
+
+    @Override
+    public void connectStart(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress, @NonNull Proxy proxy) {
+        connectStart = now();
+    }
+
+    @Override
+    public void connectEnd(@NonNull Call call, @NonNull InetSocketAddress inetSocketAddress,
+                           @NonNull Proxy proxy, Protocol protocol) {
+        record("connect", connectStart);
+    }
+
+    @Override
+    public void requestHeadersStart(@NonNull Call call) {
+        requestStart = now();
+    }
+
+    @Override
+    public void responseHeadersStart(@NonNull Call call) {
+        record("ttfb", requestStart);
+    }
+
+    @Override
+    public void responseBodyStart(@NonNull Call call) {
+        bodyStart = now();
+    }
+
+    @Override
+    public void responseBodyEnd(@NonNull Call call, long byteCount) {
+        record("body", bodyStart);
+    }
+
+    @Override
+    public void callEnd(@NonNull Call call) {
+        record("total", callStart);
+    }
+
+    @Override
+    public void callFailed(@NonNull Call call, @NonNull IOException ioe) {
+        record("failed", callStart);
+    }
+}
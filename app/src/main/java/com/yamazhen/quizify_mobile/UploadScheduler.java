@@ -0,0 +1,159 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands PDF uploads to WorkManager. The picked document is copied into app storage first,
+ * since the read grant on its content Uri ends with the process, and the copy is named after
+ * the work request so leftovers of cancelled or crashed uploads can be found and deleted.
+ */
+public final class UploadScheduler {
+    static final String TAG_UPLOAD = "pdf-upload";
+
+    // Anything bigger waits for Wi-Fi and a charger rather than eating mobile data and battery
+    private static final long LARGE_UPLOAD_BYTES = 10L * 1024 * 1024;
+    private static final long BACKOFF_SECONDS = 30;
+
+    // Staging and the sweep share one thread, and staging only finishes once WorkManager has
+    // stored the request, so the sweep never sees a staged file without its work
+    private static final ExecutorService stagingExecutor = Executors.newSingleThreadExecutor();
+
+    public interface StagingListener {
+        /** The document could not be copied or scheduled, on the main thread. Nothing was enqueued. */
+        void onStagingFailed(String message);
+    }
+
+    private UploadScheduler() {
+    }
+
+    /**
+     * Stages the document in the background and enqueues its upload. The returned id can be
+     * observed through WorkManager straight away, it shows up once staging is done.
+     */
+    public static UUID scheduleUpload(Context context, Uri uri, String fileName, int questionCount,
+                                      StagingListener listener) {
+        Context appContext = context.getApplicationContext();
+        UUID id = UUID.randomUUID();
+        stagingExecutor.execute(() -> {
+            File staged = new File(stagingDir(appContext), id.toString());
+            try {
+                copy(appContext, uri, staged);
+            } catch (IOException e) {
+                e.printStackTrace();
+                staged.delete();
+                postStagingFailed(listener, "Could not read the PDF: " + e.getMessage());
+                return;
+            }
+
+            boolean large = staged.length() > LARGE_UPLOAD_BYTES;
+            Constraints constraints = new Constraints.Builder()
+                    .setRequiredNetworkType(large ? NetworkType.UNMETERED : NetworkType.CONNECTED)
+                    .setRequiresCharging(large)
+                    .build();
+            OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(UploadWorker.class)
+                    .setId(id)
+                    .addTag(TAG_UPLOAD)
+                    .setConstraints(constraints)
+                    .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                    .setInputData(new Data.Builder()
+                            .putString(UploadWorker.KEY_PATH, staged.getAbsolutePath())
+                            .putString(UploadWorker.KEY_FILE_NAME, fileName)
+                            .putInt(UploadWorker.KEY_QUESTION_COUNT, questionCount)
+                            .build())
+                    .build();
+            // Each upload is its own request, so a big file waiting for a charger holds up nothing else
+            try {
+                WorkManager.getInstance(appContext).enqueue(request).getResult().get();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                staged.delete();
+                postStagingFailed(listener, "Could not schedule the upload");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return id;
+    }
+
+    private static void postStagingFailed(StagingListener listener, String message) {
+        new Handler(Looper.getMainLooper()).post(() -> listener.onStagingFailed(message));
+    }
+
+    /** Deletes staged copies whose upload is no longer pending. */
+    public static void cleanUpStagedFiles(Context context) {
+        Context appContext = context.getApplicationContext();
+        stagingExecutor.execute(() -> {
+            File[] files = stagingDir(appContext).listFiles();
+            if (files == null || files.length == 0) {
+                return;
+            }
+
+            Set<String> pending = new HashSet<>();
+            try {
+                for (WorkInfo info : WorkManager.getInstance(appContext).getWorkInfosByTag(TAG_UPLOAD).get()) {
+                    if (!info.getState().isFinished()) {
+                        pending.add(info.getId().toString());
+                    }
+                }
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            for (File file : files) {
+                if (!pending.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        });
+    }
+
+    // noBackupFilesDir, unlike the cache dir, is not cleared by the system while an upload waits
+    private static File stagingDir(Context context) {
+        File dir = new File(context.getNoBackupFilesDir(), "staged_uploads");
+        dir.mkdirs();
+        return dir;
+    }
+
+    private static void copy(Context context, Uri uri, File target) throws IOException {
+        InputStream in = context.getContentResolver().openInputStream(uri);
+        if (in == null) {
+            throw new FileNotFoundException("Could not open " + uri);
+        }
+        try (InputStream source = in; OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.yamazhen.quizify_mobile;
+
+import java.util.Set;
+
+/** Server answer to starting a chunked upload, see ChunkedUploader. */
+public class UploadSession {
+    private final boolean known;
+    private final int chunkSize;
+    private final Set<Integer> receivedChunks;
+    private final int questionCount;
+
+    public UploadSession(boolean known, int chunkSize, Set<Integer> receivedChunks, int questionCount) {
+        this.known = known;
+        this.chunkSize = chunkSize;
+        this.receivedChunks = receivedChunks;
+        this.questionCount = questionCount;
+    }
+
+    /** True when the server already generated questions for identical content. */
+    public boolean isKnown() {
+        return known;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public boolean hasChunk(int index) {
+        return receivedChunks.contains(index);
+    }
+
+    public int getQuestionCount() {
+        return questionCount;
+    }
+}
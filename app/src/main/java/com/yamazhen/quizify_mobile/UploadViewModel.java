@@ -0,0 +1,37 @@
+package com.yamazhen.quizify_mobile;
+
+import android.app.Application;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.UUID;
+
+/**
+ * Starts uploads for the main screen. Staging a large PDF can outlast the Activity that asked
+ * for it, so a staging failure is reported here and not to the Activity itself.
+ */
+public class UploadViewModel extends AndroidViewModel {
+    private final MutableLiveData<String> stagingError = new MutableLiveData<>();
+
+    public UploadViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    /** Stages and enqueues the upload, see {@link UploadScheduler#scheduleUpload}. */
+    public UUID scheduleUpload(Uri uri, String fileName, int questionCount) {
+        return UploadScheduler.scheduleUpload(getApplication(), uri, fileName, questionCount, stagingError::setValue);
+    }
+
+    /** Staging failures for a Toast, call {@link #onStagingErrorShown()} once displayed. */
+    public LiveData<String> getStagingError() {
+        return stagingError;
+    }
+
+    public void onStagingErrorShown() {
+        stagingError.setValue(null);
+    }
+}
@@ -0,0 +1,170 @@
+package com.yamazhen.quizify_mobile;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.io.File;
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * Uploads a PDF that UploadScheduler staged in app storage and waits for its questions, so the
+ * upload carries on after the screen that started it is gone. Network trouble and busy servers
+ * are retried with WorkManager's backoff, a refused request fails straight away. Once the server
+ * has started a job its id is remembered, so a retry goes back to waiting on that job instead of
+ * uploading again and starting a second generation. The staged copy is deleted once the upload
+ * has succeeded or given up.
+ */
+public class UploadWorker extends Worker {
+    static final String KEY_PATH = "path";
+    static final String KEY_FILE_NAME = "fileName";
+    static final String KEY_QUESTION_COUNT = "questionCount";
+
+    // Progress and output
+    static final String KEY_PERCENT = "percent";
+    static final String KEY_DEDUPLICATED = "deduplicated";
+    static final String KEY_ERROR = "error";
+
+    // Counting the first run, after that a busy or unreachable server is not worth waiting for
+    private static final int MAX_ATTEMPTS = 6;
+
+    private final SharedPreferences startedJobs;
+    private int lastPercent = Integer.MIN_VALUE;
+
+    public UploadWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        startedJobs = context.getSharedPreferences("upload_jobs", Context.MODE_PRIVATE);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        File staged = new File(getInputData().getString(KEY_PATH));
+        String fileName = getInputData().getString(KEY_FILE_NAME);
+        int questionCount = getInputData().getInt(KEY_QUESTION_COUNT, 0);
+        if (!staged.exists()) {
+            return failure("The staged file is gone");
+        }
+
+        try {
+            JobStatus job = resumeJob();
+            if (job == null) {
+                Uri uri = Uri.fromFile(staged);
+                job = new ChunkedUploader(getApplicationContext()).upload(uri, fileName, questionCount, this::onProgress);
+                if (job == null) {
+                    job = uploadMultipart(uri, fileName, questionCount);
+                }
+                if (!job.isFinished()) {
+                    startedJobs.edit().putString(getId().toString(), job.getJobId()).apply();
+                    job = new JobWatcher(getApplicationContext()).await(job.getJobId());
+                }
+                if (job == null) {
+                    // The server lost the job while we waited, the next run uploads again
+                    forgetJob();
+                    return retryOrFail(staged, "The server lost the upload");
+                }
+            }
+
+            forgetJob();
+            staged.delete();
+            if (!JobStatus.COMPLETED.equals(job.getStatus())) {
+                return failure("Generation failed: " + job.getError());
+            }
+            return Result.success(new Data.Builder()
+                    .putInt(KEY_QUESTION_COUNT, job.getQuestionCount())
+                    .putBoolean(KEY_DEDUPLICATED, job.getJobId() == null)
+                    .build());
+        } catch (HttpStatusException e) {
+            e.printStackTrace();
+            if (e.isRetryable()) {
+                return retryOrFail(staged, "Upload failed: " + e.getMessage());
+            }
+            forgetJob();
+            staged.delete();
+            return failure("Upload failed: " + e.getMessage());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return retryOrFail(staged, "Upload failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            // Stopped by WorkManager, the staged file is kept for the next run
+            return Result.retry();
+        }
+    }
+
+    // Waits on the job an earlier run started, null when there is none or the server forgot it
+    private JobStatus resumeJob() throws IOException, InterruptedException {
+        String jobId = startedJobs.getString(getId().toString(), null);
+        if (jobId == null) {
+            return null;
+        }
+        JobStatus job = new JobWatcher(getApplicationContext()).await(jobId);
+        if (job == null) {
+            forgetJob();
+        }
+        return job;
+    }
+
+    private void forgetJob() {
+        startedJobs.edit().remove(getId().toString()).apply();
+    }
+
+    private Result retryOrFail(File staged, String error) {
+        if (getRunAttemptCount() + 1 < MAX_ATTEMPTS) {
+            return Result.retry();
+        }
+        forgetJob();
+        staged.delete();
+        return failure(error);
+    }
+
+    // Single request upload for servers without the /uploads endpoints
+    private JobStatus uploadMultipart(Uri uri, String fileName, int questionCount) throws IOException {
+        OkHttpClient client = ApiClient.getInstance(getApplicationContext());
+        RequestBody fileBody = new ContentUriRequestBody(getApplicationContext().getContentResolver(), uri,
+                MediaType.parse("application/pdf"), this::onProgress);
+
+        MultipartBody requestBody = new MultipartBody.Builder()
+                .setType(MultipartBody.FORM)
+                .addFormDataPart("pdf", fileName, fileBody)
+                .build();
+
+        Request request = new Request.Builder()
+                .url(ApiClient.url("/upload-pdf"))
+                .post(requestBody)
+                .addHeader("file-name", fileName)
+                .addHeader("question-count", String.valueOf(questionCount))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                throw new HttpStatusException(response.code());
+            }
+            return JsonDecoder.readJobStatus(response.body().charStream());
+        }
+    }
+
+    private void onProgress(long bytesWritten, long totalBytes) {
+        int percent = totalBytes > 0 ? (int) (bytesWritten * 100 / totalBytes) : -1;
+        if (percent == lastPercent) {
+            return;
+        }
+        lastPercent = percent;
+        setProgressAsync(new Data.Builder().putInt(KEY_PERCENT, percent).build());
+    }
+
+    private static Result failure(String error) {
+        return Result.failure(new Data.Builder().putString(KEY_ERROR, error).build());
+    }
+}
@@ -0,0 +1,48 @@
+package com.yamazhen.quizify_mobile;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class QuizGraderTest {
+    @Test
+    public void matching_isTrimmedAndCaseInsensitive() {
+        assertTrue(QuizGrader.isCorrect("  paris ", "Paris"));
+        assertFalse(QuizGrader.isCorrect("Lyon", "Paris"));
+    }
+
+    @Test
+    public void blankOrMissingAnswers_areWrong() {
+        assertFalse(QuizGrader.isCorrect((String) null, "Paris"));
+        assertFalse(QuizGrader.isCorrect("", ""));
+        assertFalse(QuizGrader.isCorrect("Paris", null));
+    }
+
+    @Test
+    public void multipleAnswers_passWhenAnyMatches() {
+        assertTrue(QuizGrader.isCorrect(Arrays.asList("Lyon", null, "PARIS"), "paris"));
+        assertFalse(QuizGrader.isCorrect(Arrays.asList("Lyon", "Nice"), "paris"));
+    }
+
+    @Test
+    public void grade_coversEveryQuestion() {
+        List<Question> questions = Arrays.asList(
+                new Question(1, "Capital of France?", Arrays.asList("Paris", "Lyon"), "Paris"),
+                new Question(2, "2 + 2?", Arrays.asList("3", "4"), "4"));
+        Map<Integer, List<String>> answers = new HashMap<>();
+        answers.put(1, Collections.singletonList("paris"));
+
+        List<GradeResult> results = QuizGrader.grade(questions, answers);
+
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).isCorrect());
+        assertFalse(results.get(1).isCorrect());
+        assertEquals("4", results.get(1).getCorrectAnswer());
+    }
+}
@@ -0,0 +1,56 @@
+package com.yamazhen.quizify_mobile.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/** UI steps shared by the benchmarks, written against the app's view ids. */
+final class Journeys {
+    static final String PACKAGE_NAME = "com.yamazhen.quizify_mobile";
+    private static final long TIMEOUT_MS = 10_000;
+
+    private Journeys() {
+    }
+
+    static BySelector id(String name) {
+        return By.res(PACKAGE_NAME, name);
+    }
+
+    /** Wipes the local store and caches, so every iteration syncs from the mock server. */
+    static void clearAppData(MacrobenchmarkScope scope) {
+        scope.getDevice().executeShellCommand("pm clear " + PACKAGE_NAME);
+    }
+
+    static void waitForResources(UiDevice device) {
+        device.wait(Until.hasObject(id("resource_start_button")), TIMEOUT_MS);
+    }
+
+    /** Taps the play button of the lecture holding questionCount questions. */
+    static void openQuiz(UiDevice device, int questionCount) {
+        UiObject2 name = device.wait(Until.findObject(By.text(MockQuizServer.fileName(questionCount))), TIMEOUT_MS);
+        if (name == null) {
+            throw new IllegalStateException("Lecture " + MockQuizServer.fileName(questionCount) + " not listed");
+        }
+        name.getParent().findObject(id("resource_start_button")).click();
+        device.wait(Until.hasObject(id("question_text")), TIMEOUT_MS);
+    }
+
+    static void scrollQuestions(UiDevice device, int flings) {
+        UiObject2 list = device.findObject(id("questions_list"));
+        // Keep the fling away from the gesture navigation area
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        for (int i = 0; i < flings; i++) {
+            list.fling(Direction.DOWN);
+            device.waitForIdle();
+        }
+    }
+
+    static void submit(UiDevice device) {
+        device.findObject(id("submit_button")).click();
+        device.wait(Until.hasObject(id("question_feedback")), TIMEOUT_MS);
+    }
+}
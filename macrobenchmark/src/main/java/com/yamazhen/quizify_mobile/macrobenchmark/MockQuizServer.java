@@ -0,0 +1,124 @@
+package com.yamazhen.quizify_mobile.macrobenchmark;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.net.InetAddress;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Serves the endpoints the app reads from, with deterministic content, on the port the app's
+ * benchmark build type points at. Lectures are named "bench-<n>.pdf" and hold n questions, so a
+ * journey can pick the set size it wants from the resources list.
+ */
+public class MockQuizServer {
+    // Has to match API_BASE_URL of the app's benchmark build type
+    public static final int PORT = 8080;
+    public static final int[] SET_SIZES = {10, 100, 500};
+
+    private final MockWebServer server = new MockWebServer();
+
+    public static String fileName(int questionCount) {
+        return "bench-" + questionCount + ".pdf";
+    }
+
+    public void start() throws IOException {
+        server.setDispatcher(new Dispatcher() {
+            @NonNull
+            @Override
+            public MockResponse dispatch(@NonNull RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        server.start(InetAddress.getByName("127.0.0.1"), PORT);
+    }
+
+    public void shutdown() throws IOException {
+        server.shutdown();
+    }
+
+    private static MockResponse respond(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        if (url == null) {
+            return new MockResponse().setResponseCode(400);
+        }
+        String path = url.encodedPath();
+        if ("GET".equals(request.getMethod()) && path.equals("/resources")) {
+            return json(resources());
+        }
+        if ("GET".equals(request.getMethod()) && url.pathSize() == 2 && url.pathSegments().get(0).equals("questions")) {
+            return questions(url);
+        }
+        if ("POST".equals(request.getMethod()) && path.equals("/submit-answers")) {
+            return json("{\"results\":[],\"score\":0,\"totalQuestions\":0}");
+        }
+        if ("POST".equals(request.getMethod()) && path.equals("/submit-answers/batch")) {
+            return json("{\"attempts\":[]}");
+        }
+        return new MockResponse().setResponseCode(404);
+    }
+
+    private static String resources() {
+        StringBuilder json = new StringBuilder("{\"questions\":[");
+        for (int i = 0; i < SET_SIZES.length; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"fileName\":\"").append(fileName(SET_SIZES[i]))
+                    .append("\",\"questionCount\":").append(SET_SIZES[i]).append('}');
+        }
+        return json.append("],\"nextCursor\":null}").toString();
+    }
+
+    // Same keyset paging as the real endpoint: ids after ?after, at most ?limit of them
+    private static MockResponse questions(HttpUrl url) {
+        String fileName = url.pathSegments().get(1);
+        int size;
+        try {
+            size = Integer.parseInt(fileName.substring("bench-".length(), fileName.length() - ".pdf".length()));
+        } catch (RuntimeException e) {
+            return json("{\"questions\":[],\"nextCursor\":null}");
+        }
+        // Ids have to be unique across lectures, the app stores them all in one table
+        int firstId = size * 1000 + 1;
+        int lastId = firstId + size - 1;
+        int after = parseOr(url.queryParameter("after"), 0);
+        int limit = parseOr(url.queryParameter("limit"), 50);
+
+        int start = Math.max(after + 1, firstId);
+        int end = Math.min(start + limit - 1, lastId);
+        StringBuilder json = new StringBuilder("{\"questions\":[");
+        for (int id = start; id <= end; id++) {
+            if (id > start) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(id)
+                    .append(",\"fileName\":\"").append(fileName).append('"')
+                    .append(",\"questionText\":\"Which statement best describes concept ").append(id).append("?\"")
+                    .append(",\"choices\":[\"Option A\",\"Option B\",\"Option C\",\"Option D\"]")
+                    .append(",\"correctAnswer\":\"Option B\"}");
+        }
+        json.append("],\"nextCursor\":").append(end < lastId ? "\"" + end + "\"" : "null").append('}');
+        return json(json.toString());
+    }
+
+    private static int parseOr(String value, int fallback) {
+        try {
+            return value == null ? fallback : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static MockResponse json(String body) {
+        return new MockResponse()
+                .setHeader("Content-Type", "application/json")
+                .setHeader("Cache-Control", "no-store")
+                .setBody(body);
+    }
+}
@@ -0,0 +1,95 @@
+package com.yamazhen.quizify_mobile.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Opening QuizActivity with 10, 100 and 500 questions from a cold local store, then scrolling
+ * through the set and submitting it. Frame timings cover everything in the measure block.
+ */
+@RunWith(Parameterized.class)
+public class QuizBenchmark {
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Parameterized.Parameters(name = "questions={0}")
+    public static List<Integer> sizes() {
+        return Arrays.asList(10, 100, 500);
+    }
+
+    private final int questionCount;
+    private final MockQuizServer server = new MockQuizServer();
+
+    public QuizBenchmark(int questionCount) {
+        this.questionCount = questionCount;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void openQuiz() {
+        benchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                null,
+                ITERATIONS,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    scope.startActivityAndWait();
+                    Journeys.waitForResources(scope.getDevice());
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.openQuiz(scope.getDevice(), questionCount);
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void scrollAndSubmit() {
+        benchmarkRule.measureRepeated(
+                Journeys.PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                null,
+                ITERATIONS,
+                scope -> {
+                    Journeys.clearAppData(scope);
+                    scope.startActivityAndWait();
+                    Journeys.waitForResources(scope.getDevice());
+                    Journeys.openQuiz(scope.getDevice(), questionCount);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Journeys.scrollQuestions(scope.getDevice(), 5);
+                    Journeys.submit(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
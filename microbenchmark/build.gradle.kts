@@ -0,0 +1,51 @@
+plugins {
+    alias(libs.plugins.android.library)
+    alias(libs.plugins.androidx.benchmark)
+}
+
+android {
+    namespace = "com.yamazhen.quizify_mobile.microbenchmark"
+    compileSdk = 34
+
+    defaultConfig {
+        minSdk = 23
+        testInstrumentationRunner = "androidx.benchmark.junit4.AndroidBenchmarkRunner"
+    }
+
+    // Benchmarks have to run against a non-debuggable build to give meaningful numbers
+    testBuildType = "release"
+    buildTypes {
+        release {
+            isDefault = true
+        }
+    }
+
+    // A library can't depend on the :app module, so the plain-Java hot paths are compiled in from its sources
+    sourceSets {
+        getByName("main") {
+            java.srcDir("../app/src/main/java")
+            java.include(
+                "**/JsonDecoder.java",
+                "**/BinaryDecoder.java",
+                "**/QuizGrader.java",
+                "**/Question.java",
+                "**/Resource.java",
+                "**/Page.java",
+                "**/GradeResult.java",
+                "**/UploadSession.java",
+                "**/JobStatus.java",
+            )
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+}
+
+dependencies {
+    implementation(libs.annotation)
+    androidTestImplementation(libs.benchmark.junit4)
+    androidTestImplementation(libs.ext.junit)
+}
@@ -0,0 +1,63 @@
+package com.yamazhen.quizify_mobile.microbenchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.yamazhen.quizify_mobile.BinaryDecoder;
+import com.yamazhen.quizify_mobile.JsonDecoder;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(Parameterized.class)
+public class JsonDecoderBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "size={0}")
+    public static List<Integer> sizes() {
+        return Arrays.asList(10, 100, 500);
+    }
+
+    private final String questionPage;
+    private final byte[] questionPageBinary;
+    private final String resourcePage;
+
+    public JsonDecoderBenchmark(int size) throws IOException {
+        questionPage = Payloads.questionPage(size);
+        questionPageBinary = Payloads.questionPageBinary(size);
+        resourcePage = Payloads.resourcePage(size);
+    }
+
+    @Test
+    public void readQuestionPage() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            JsonDecoder.readQuestionPage(new StringReader(questionPage));
+        }
+    }
+
+    @Test
+    public void readQuestionPageBinary() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            BinaryDecoder.readQuestionPage(new ByteArrayInputStream(questionPageBinary));
+        }
+    }
+
+    @Test
+    public void readResourcePage() throws IOException {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            JsonDecoder.readResourcePage(new StringReader(resourcePage));
+        }
+    }
+}
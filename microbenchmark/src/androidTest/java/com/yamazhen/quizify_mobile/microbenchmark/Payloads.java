@@ -0,0 +1,71 @@
+package com.yamazhen.quizify_mobile.microbenchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/** Synthetic server payloads in the shapes /questions/:fileName and /resources return. */
+final class Payloads {
+
+    private Payloads() {
+    }
+
+    static String questionPage(int count) {
+        StringBuilder json = new StringBuilder("{\"questions\":[");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i)
+                    .append(",\"fileName\":\"lecture.pdf\",\"lectureTitle\":\"Lecture\"")
+                    .append(",\"questionText\":\"Which statement best describes concept number ").append(i).append("?\"")
+                    .append(",\"questionType\":\"multiple-choice\"")
+                    .append(",\"choices\":[\"Option A for ").append(i).append("\",\"Option B for ").append(i)
+                    .append("\",\"Option C for ").append(i).append("\",\"Option D for ").append(i).append("\"]")
+                    .append(",\"correctAnswer\":\"Option B for ").append(i).append("\"")
+                    .append(",\"difficultyLevel\":\"medium\",\"dateCreated\":\"2024-01-01T00:00:00.000Z\"}");
+        }
+        return json.append("],\"nextCursor\":null}").toString();
+    }
+
+    /** The same questions in the binary encoding, as written by the server's wireFormat.js. */
+    static byte[] questionPageBinary(int count) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeBytes("QZQ1");
+        writeString(out, null);
+        out.writeInt(count);
+        for (int i = 1; i <= count; i++) {
+            out.writeInt(i);
+            writeString(out, "Which statement best describes concept number " + i + "?");
+            writeString(out, "Option B for " + i);
+            out.writeInt(4);
+            for (String option : new String[]{"A", "B", "C", "D"}) {
+                writeString(out, "Option " + option + " for " + i);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    static String resourcePage(int count) {
+        StringBuilder json = new StringBuilder("{\"questions\":[");
+        for (int i = 1; i <= count; i++) {
+            if (i > 1) {
+                json.append(',');
+            }
+            json.append("{\"fileName\":\"lecture-").append(i).append(".pdf\",\"questionCount\":").append(i % 50 + 1).append('}');
+        }
+        return json.append("],\"nextCursor\":null}").toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.yamazhen.quizify_mobile.microbenchmark;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.yamazhen.quizify_mobile.JsonDecoder;
+import com.yamazhen.quizify_mobile.Question;
+import com.yamazhen.quizify_mobile.QuizGrader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(Parameterized.class)
+public class QuizGraderBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    @Parameterized.Parameters(name = "size={0}")
+    public static List<Integer> sizes() {
+        return Arrays.asList(10, 100, 500);
+    }
+
+    private final List<Question> questions;
+    private final Map<Integer, List<String>> answers = new HashMap<>();
+
+    public QuizGraderBenchmark(int size) throws IOException {
+        questions = JsonDecoder.readQuestionPage(new StringReader(Payloads.questionPage(size))).getItems();
+        // Every other question answered, half of those right, with the case and padding the grader has to undo
+        for (int i = 0; i < questions.size(); i += 2) {
+            Question question = questions.get(i);
+            String answer = i % 4 == 0 ? " " + question.getCorrectAnswer().toUpperCase() + " " : question.getChoices().get(0);
+            answers.put(question.getId(), Collections.singletonList(answer));
+        }
+    }
+
+    @Test
+    public void grade() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            QuizGrader.grade(questions, answers);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+// Splitting lecture text into chunks for separate model calls, and sharing the requested
+// questions out over them. Pure functions, generator.js does the calling.
+
+const MAX_CHUNK_CHARS = Number.parseInt(process.env.GENERATION_CHUNK_CHARS, 10) || 12000;
+
+// pdf-parse separates pages with blank lines, so paragraphs are packed into chunks without
+// ever cutting one in half unless a single paragraph is larger than a chunk on its own
+export function splitText(text, maxChars = MAX_CHUNK_CHARS) {
+    const paragraphs = text.split(/\n\s*\n/).map((p) => p.trim()).filter((p) => p.length > 0);
+    const chunks = [];
+    let current = "";
+
+    for (const paragraph of paragraphs) {
+        if (current.length > 0 && current.length + paragraph.length + 2 > maxChars) {
+            chunks.push(current);
+            current = "";
+        }
+        if (paragraph.length > maxChars) {
+            for (let start = 0; start < paragraph.length; start += maxChars) {
+                chunks.push(paragraph.slice(start, start + maxChars));
+            }
+            continue;
+        }
+        current = current.length > 0 ? `${current}\n\n${paragraph}` : paragraph;
+    }
+    if (current.length > 0) {
+        chunks.push(current);
+    }
+    return chunks;
+}
+
+// Shares count questions out over the chunks by length, so the plan always adds up to exactly
+// count. Neighbouring short chunks are folded together first, as long as the result stays within
+// maxChars, to save model calls. Chunks can still outnumber the questions, in which case some
+// get none and are skipped.
+export function planChunks(chunks, count, maxChars = MAX_CHUNK_CHARS) {
+    chunks = [...chunks];
+    while (chunks.length > count) {
+        let best = -1;
+        for (let i = 0; i < chunks.length - 1; i++) {
+            const merged = chunks[i].length + chunks[i + 1].length + 2;
+            if (merged <= maxChars && (best === -1 || merged < chunks[best].length + chunks[best + 1].length + 2)) {
+                best = i;
+            }
+        }
+        if (best === -1) {
+            break;
+        }
+        chunks.splice(best, 2, `${chunks[best]}\n\n${chunks[best + 1]}`);
+    }
+
+    // Largest remainder: everyone gets the whole part of their quota, the questions left over go
+    // to the largest fractions
+    const total = chunks.reduce((sum, chunk) => sum + chunk.length, 0);
+    const quotas = chunks.map((chunk) => (chunk.length / total) * count);
+    const counts = quotas.map(Math.floor);
+    let left = count - counts.reduce((sum, n) => sum + n, 0);
+
+    const byRemainder = new Map();
+    quotas.forEach((quota, i) => {
+        // Rounded so equal-length chunks really do tie
+        const remainder = Math.round((quota - counts[i]) * 1e6);
+        byRemainder.set(remainder, [...(byRemainder.get(remainder) ?? []), i]);
+    });
+    for (const remainder of [...byRemainder.keys()].sort((a, b) => b - a)) {
+        if (left === 0) {
+            break;
+        }
+        const tied = byRemainder.get(remainder);
+        // Not enough left for every tied chunk: spread them evenly so the end of the lecture is covered too
+        const picked = tied.length <= left
+            ? tied
+            : Array.from({ length: left }, (_, j) => tied[Math.floor(((j + 0.5) * tied.length) / left)]);
+        for (const i of picked) {
+            counts[i]++;
+        }
+        left -= picked.length;
+    }
+
+    return chunks.map((text, i) => ({ text, count: counts[i] })).filter((chunk) => chunk.count > 0);
+}
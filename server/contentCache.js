@@ -0,0 +1,65 @@
+import { createHash } from "crypto";
+import { getCacheEntry, putCacheEntry } from "./database.js";
+import { increment } from "./metrics.js";
+
+// Content-addressed cache kept in the content_cache table, so it survives restarts.
+//
+//   pdfText:<sha256 of the PDF bytes>                   text extracted by pdf-parse
+//   generation:<sha256 of model + schema + prompt>      the model's answer, parsed and checked
+//
+// Identical inputs skip the work entirely, and a near-identical PDF still hits for every text
+// chunk it shares with one seen before. The table is trimmed to CONTENT_CACHE_MAX_BYTES by
+// least recent use. A broken cache never fails a request, it only costs the recomputation.
+
+const MAX_BYTES = Number.parseInt(process.env.CONTENT_CACHE_MAX_BYTES, 10) || 64 * 1024 * 1024;
+
+// Identical work already running is shared instead of being started twice
+const pending = new Map();
+
+export function cacheKey(kind, ...parts) {
+    const hash = createHash("sha256");
+    for (const part of parts) {
+        hash.update(typeof part === "string" ? part : JSON.stringify(part));
+        hash.update("\0");
+    }
+    return `${kind}:${hash.digest("hex")}`;
+}
+
+async function lookup(kind, key) {
+    try {
+        const value = await getCacheEntry(key);
+        if (value !== null) {
+            increment(`cache.${kind}.hit`);
+            return JSON.parse(value);
+        }
+    } catch (err) {
+        console.error("Error reading content cache", err.message);
+    }
+    increment(`cache.${kind}.miss`);
+    return undefined;
+}
+
+// Resolves with the cached value for key, or runs compute and caches what it returns.
+// null and undefined results are not cached, so failed generations are retried next time.
+export function memoize(kind, key, compute) {
+    if (pending.has(key)) {
+        return pending.get(key);
+    }
+
+    const result = (async () => {
+        const hit = await lookup(kind, key);
+        if (hit !== undefined) {
+            return hit;
+        }
+        const value = await compute();
+        if (value !== null && value !== undefined) {
+            putCacheEntry(key, JSON.stringify(value), MAX_BYTES)
+                .catch((err) => console.error("Error writing content cache", err.message));
+        }
+        return value;
+    })();
+
+    pending.set(key, result);
+    result.finally(() => pending.delete(key)).catch(() => {});
+    return result;
+}
@@ -1,81 +1,361 @@
 import sqlite3 from "sqlite3";
+import { timeQuery } from "./metrics.js";
 
-const db = new sqlite3.Database("./questions.db", (err) => {
+// Schema
+//   lectures  one row per generated upload: fileName, contentHash, the lecture title/content and
+//             a denormalised questionCount so /resources never has to aggregate questions
+//   questions one row per question, pointing at its lecture
+//   content_cache  content-addressed cache of extracted PDF text and model output, see contentCache.js
+//
+// Question ids are kept stable across the migration from the old single-table layout, since
+// clients use them as sync cursors.
+
+// DB_PATH lets the load test run against its own seeded copy
+const DB_PATH = process.env.DB_PATH || "./questions.db";
+const db = new sqlite3.Database(DB_PATH, (err) => {
     if (err) {
         console.log(err.message);
     } else {
         console.log("Database connected");
-        db.run(`
-            CREATE TABLE IF NOT EXISTS questions 
-            (id INTEGER PRIMARY KEY AUTOINCREMENT,
-            lectureTitle TEXT,
-            lectureContent TEXT,
-            questionText TEXT,
-            questionType TEXT,
-            choices TEXT,
-            correctAnswer TEXT,
-            difficultyLevel TEXT,
-            dateCreated TEXT,
-            fileName TEXT)
-            `, (err) => {
-                if (err) {
-                    console.log(err.message)
-                }
-            }); 
     }
 });
 
-export function saveQuestion(data) {
-    const { fileName, lectureTitle, lectureContent, questionText, questionType, choices, correctAnswer, difficultyLevel, dateCreated } = data;
-
-    db.run(`
-        INSERT INTO questions (fileName, lectureTitle, lectureContent, questionText, questionType, choices, correctAnswer, difficultyLevel, dateCreated)
-        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)`,
-        [fileName, lectureTitle, lectureContent, questionText, questionType, JSON.stringify(choices), correctAnswer, difficultyLevel, dateCreated],
-        function (err) {
+function rawRun(sql, params = []) {
+    return new Promise((resolve, reject) => {
+        db.run(sql, params, function (err) {
             if (err) {
-                return console.error("Error saving question", err.message);
+                reject(err);
+            } else {
+                resolve({ lastID: this.lastID, changes: this.changes });
             }
-            console.log(`A row has been inserted with rowid ${this.lastID}`);
-        }
-    );
+        });
+    });
 }
 
-export function getAllQuestions(callback) {
-    db.all("SELECT * FROM questions", [], (err, rows) => {
-        if (err) {
-            console.error("Error retrieving questions", err.message);
+function rawAll(sql, params = [], connection = db) {
+    return new Promise((resolve, reject) => {
+        connection.all(sql, params, (err, rows) => (err ? reject(err) : resolve(rows)));
+    });
+}
+
+function rawExec(sql) {
+    return new Promise((resolve, reject) => {
+        db.exec(sql, (err) => (err ? reject(err) : resolve()));
+    });
+}
+
+const SCHEMA = `
+    CREATE TABLE IF NOT EXISTS lectures
+    (id INTEGER PRIMARY KEY AUTOINCREMENT,
+    fileName TEXT NOT NULL,
+    contentHash TEXT,
+    lectureTitle TEXT,
+    lectureContent TEXT,
+    questionCount INTEGER NOT NULL DEFAULT 0,
+    dateCreated TEXT);
+
+    CREATE TABLE IF NOT EXISTS questions
+    (id INTEGER PRIMARY KEY AUTOINCREMENT,
+    lectureId INTEGER NOT NULL REFERENCES lectures (id) ON DELETE CASCADE,
+    questionText TEXT,
+    questionType TEXT,
+    choices TEXT,
+    correctAnswer TEXT,
+    difficultyLevel TEXT,
+    dateCreated TEXT);
+
+    -- (fileName, questionCount) covers the /resources GROUP BY, so it is answered from the index alone
+    CREATE INDEX IF NOT EXISTS idx_lectures_fileName ON lectures (fileName, questionCount);
+    CREATE INDEX IF NOT EXISTS idx_lectures_contentHash ON lectures (contentHash);
+    CREATE INDEX IF NOT EXISTS idx_questions_lectureId ON questions (lectureId, id);
+
+    CREATE TABLE IF NOT EXISTS content_cache
+    (key TEXT PRIMARY KEY,
+    value TEXT NOT NULL,
+    size INTEGER NOT NULL,
+    lastUsed INTEGER NOT NULL);
+    CREATE INDEX IF NOT EXISTS idx_content_cache_lastUsed ON content_cache (lastUsed);
+`;
+
+// Moves a database from the original single questions table into lectures + questions
+async function migrateLegacyQuestions() {
+    const columns = await rawAll("PRAGMA table_info(questions)");
+    if (!columns.some((c) => c.name === "fileName")) {
+        return;
+    }
+    // contentHash only exists on databases that saw the resumable upload change
+    const contentHash = columns.some((c) => c.name === "contentHash") ? "contentHash" : "NULL";
+
+    console.log("Migrating questions table to the lectures schema");
+    await rawExec("BEGIN IMMEDIATE");
+    try {
+        await rawExec(`
+            ALTER TABLE questions RENAME TO legacy_questions;
+            ${SCHEMA}
+        `);
+        await rawRun(`
+            INSERT INTO lectures (fileName, contentHash, lectureTitle, lectureContent, questionCount, dateCreated)
+            SELECT fileName, ${contentHash}, MAX(lectureTitle), MAX(lectureContent), COUNT(*), MIN(dateCreated)
+            FROM legacy_questions
+            GROUP BY fileName, ${contentHash}`);
+        await rawRun(`
+            INSERT INTO questions (id, lectureId, questionText, questionType, choices, correctAnswer, difficultyLevel, dateCreated)
+            SELECT q.id, l.id, q.questionText, q.questionType, q.choices, q.correctAnswer, q.difficultyLevel, q.dateCreated
+            FROM legacy_questions q
+            JOIN lectures l ON l.fileName IS q.fileName AND l.contentHash IS ${contentHash === "NULL" ? "NULL" : "q.contentHash"}`);
+        await rawExec("DROP TABLE legacy_questions");
+        await rawExec("COMMIT");
+    } catch (err) {
+        await rawExec("ROLLBACK");
+        throw err;
+    }
+}
+
+async function initialize() {
+    // WAL lets the read endpoints keep going while a generated set is being written
+    await rawExec(`
+        PRAGMA journal_mode = WAL;
+        PRAGMA synchronous = NORMAL;
+        PRAGMA foreign_keys = ON;
+    `);
+    await migrateLegacyQuestions();
+    await rawExec(SCHEMA);
+}
+
+const ready = initialize().catch((err) => {
+    console.log(err.message);
+    throw err;
+});
+
+// Reads get a connection of their own. Statements on the write connection would run inside
+// whatever transaction is open there and could see rows that are later rolled back, while under
+// WAL this one only ever sees committed data. Opened once the schema exists.
+const readDb = ready.then(() => new Promise((resolve, reject) => {
+    const connection = new sqlite3.Database(DB_PATH, sqlite3.OPEN_READONLY, (err) => (err ? reject(err) : resolve(connection)));
+}));
+
+// name is the key the query is timed under on /metrics
+async function all(name, sql, params = []) {
+    const connection = await readDb;
+    return timeQuery(name, rawAll(sql, params, connection));
+}
+
+function withCallback(promise, callback, label) {
+    promise.then(
+        (rows) => callback(null, rows),
+        (err) => {
+            console.error(label, err.message);
             callback(err, null);
-        } else {
-            callback(null, rows);
+        },
+    );
+}
+
+// The connection is shared, so transactions are queued behind each other rather than nested
+let transactionQueue = Promise.resolve();
+
+function inTransaction(work) {
+    const result = transactionQueue.then(async () => {
+        await ready;
+        await rawExec("BEGIN IMMEDIATE");
+        try {
+            const value = await work();
+            await rawExec("COMMIT");
+            return value;
+        } catch (err) {
+            await rawExec("ROLLBACK");
+            throw err;
         }
     });
+    transactionQueue = result.catch(() => {});
+    return result;
 }
 
-export function getAllQuestionsByFileName(fileName, callback) {
-    db.all("SELECT * FROM questions WHERE fileName = ?", [fileName], (err, rows) => {
-        if (err) {
-            console.error("Error retrieving questions", err.message);
-            callback(err, null);
-        } else {
-            callback(null, rows);
+function finalize(statement) {
+    return new Promise((resolve) => statement.finalize(() => resolve()));
+}
+
+// Writes a lecture and its whole generated question set in one transaction with one prepared statement
+export function saveLecture({ fileName, contentHash, lectureTitle, lectureContent, questions }) {
+    return inTransaction(async () => {
+        const dateCreated = new Date().toISOString();
+        const { lastID: lectureId } = await rawRun(`
+            INSERT INTO lectures (fileName, contentHash, lectureTitle, lectureContent, questionCount, dateCreated)
+            VALUES (?, ?, ?, ?, ?, ?)`,
+            [fileName, contentHash, lectureTitle, lectureContent, questions.length, dateCreated]);
+
+        const statement = db.prepare(`
+            INSERT INTO questions (lectureId, questionText, questionType, choices, correctAnswer, difficultyLevel, dateCreated)
+            VALUES (?, ?, ?, ?, ?, ?, ?)`);
+        try {
+            for (const question of questions) {
+                await new Promise((resolve, reject) => {
+                    statement.run(
+                        [lectureId, question.questionText, question.questionType, JSON.stringify(question.choices),
+                            question.correctAnswer, question.difficultyLevel, dateCreated],
+                        (err) => (err ? reject(err) : resolve()),
+                    );
+                });
+            }
+        } finally {
+            await finalize(statement);
         }
+        console.log(`Saved ${questions.length} questions for lecture ${lectureId}`);
+        return lectureId;
     });
 }
 
-export function getResources(callback) {
+const QUESTION_COLUMNS = `
+    q.id, l.fileName, l.lectureTitle, l.lectureContent, q.questionText, q.questionType,
+    q.choices, q.correctAnswer, q.difficultyLevel, q.dateCreated`;
+
+export function getAllQuestions(callback) {
+    withCallback(
+        all("getAllQuestions", `SELECT ${QUESTION_COLUMNS} FROM questions q JOIN lectures l ON l.id = q.lectureId ORDER BY q.id`)
+            .then(withParsedChoices),
+        callback,
+        "Error retrieving questions",
+    );
+}
+
+// choices is stored as a JSON string, clients get it back as a real array
+function withParsedChoices(rows) {
+    return rows.map((row) => ({ ...row, choices: JSON.parse(row.choices) }));
+}
+
+// What a quiz screen needs, without the lecture text that would otherwise repeat on every row
+const QUESTION_PAGE_COLUMNS = "q.id, q.questionText, q.choices, q.correctAnswer";
+
+// Keyset page of a file's questions: ids strictly after afterId, oldest first. limit null means no limit.
+// Ids only grow, so afterId doubles as the "changed since" cursor for incremental sync.
+export function getQuestionsByFileName(fileName, { afterId = 0, limit = null } = {}, callback) {
+    withCallback(
+        all("getQuestionsByFileName", `SELECT ${QUESTION_PAGE_COLUMNS} FROM lectures l JOIN questions q ON q.lectureId = l.id
+            WHERE l.fileName = ? AND q.id > ? ORDER BY q.id LIMIT ?`, [fileName, afterId, limit ?? -1]).then(withParsedChoices),
+        callback,
+        "Error retrieving questions",
+    );
+}
+
+// Questions already generated for this content under fileName, left out of the lecture text
+// like a page. Dedup responses use them to skip parsing and generation.
+async function getLectureQuestions(contentHash, fileName) {
+    const rows = await all("getLectureQuestions", `SELECT ${QUESTION_PAGE_COLUMNS} FROM lectures l JOIN questions q ON q.lectureId = l.id
+        WHERE l.contentHash = ? AND l.fileName = ? ORDER BY q.id`, [contentHash, fileName]);
+    return withParsedChoices(rows);
+}
+
+// Copies every lecture of the content stored under fromName to toName, unless toName already has one
+function copyLectures(contentHash, fromName, toName) {
+    return inTransaction(async () => {
+        const existing = await rawAll("SELECT 1 FROM lectures WHERE contentHash = ? AND fileName = ? LIMIT 1", [contentHash, toName]);
+        if (existing.length > 0) {
+            return;
+        }
+        const dateCreated = new Date().toISOString();
+        const sources = await rawAll("SELECT id FROM lectures WHERE contentHash = ? AND fileName = ? ORDER BY id", [contentHash, fromName]);
+        for (const { id } of sources) {
+            const { lastID: lectureId } = await rawRun(`
+                INSERT INTO lectures (fileName, contentHash, lectureTitle, lectureContent, questionCount, dateCreated)
+                SELECT ?, contentHash, lectureTitle, lectureContent, questionCount, ? FROM lectures WHERE id = ?`,
+                [toName, dateCreated, id]);
+            await rawRun(`
+                INSERT INTO questions (lectureId, questionText, questionType, choices, correctAnswer, difficultyLevel, dateCreated)
+                SELECT ?, questionText, questionType, choices, correctAnswer, difficultyLevel, ? FROM questions WHERE lectureId = ? ORDER BY id`,
+                [lectureId, dateCreated, id]);
+        }
+    });
+}
+
+// Questions stored for an identical PDF under fileName, empty when the content was never generated.
+// Content only known under other names is copied under fileName first, from the name with the most
+// questions, so a re-upload under a new name shows up in /resources and /questions like any other.
+export async function reuseLecture(contentHash, fileName) {
+    const own = await getLectureQuestions(contentHash, fileName);
+    if (own.length > 0) {
+        return own;
+    }
+    const [source] = await all("findLectureSource", `SELECT fileName FROM lectures WHERE contentHash = ?
+        GROUP BY fileName ORDER BY SUM(questionCount) DESC LIMIT 1`, [contentHash]);
+    if (!source) {
+        return [];
+    }
+    await copyLectures(contentHash, source.fileName, fileName);
+    return getLectureQuestions(contentHash, fileName);
+}
+
+// SQLite caps bound parameters per statement, larger id lists are queried in batches
+const MAX_IDS_PER_QUERY = 500;
+
+// Only what grading needs, looked up by primary key
+export async function getAnswerKeysByIds(ids) {
+    const keys = [];
+    for (let start = 0; start < ids.length; start += MAX_IDS_PER_QUERY) {
+        const batch = ids.slice(start, start + MAX_IDS_PER_QUERY);
+        const placeholders = batch.map(() => "?").join(", ");
+        keys.push(...await all("getAnswerKeysByIds", `SELECT id, correctAnswer FROM questions WHERE id IN (${placeholders})`, batch));
+    }
+    return keys;
+}
+
+// Resources are one row per fileName, so pages are keyed on fileName, which walks the covering
+// (fileName, questionCount) index. updatedSince keeps only files that got a lecture after that time.
+export function getResources({ afterFileName = null, limit = null, updatedSince = null } = {}, callback) {
+    const conditions = [];
+    const params = [];
+    if (afterFileName !== null) {
+        conditions.push("fileName > ?");
+        params.push(afterFileName);
+    }
+    if (updatedSince !== null) {
+        conditions.push("fileName IN (SELECT fileName FROM lectures WHERE dateCreated > ?)");
+        params.push(updatedSince);
+    }
     const query = `
-        SELECT fileName, COUNT(*) as questionCount
-        FROM questions
+        SELECT fileName, SUM(questionCount) as questionCount
+        FROM lectures
+        ${conditions.length > 0 ? `WHERE ${conditions.join(" AND ")}` : ""}
         GROUP BY fileName
+        ORDER BY fileName
+        LIMIT ?
         `;
 
-    db.all(query, (err, rows) => {
-        if (err) {
-            console.error("Error retrieving resources", err.message);
-            callback(err, null)
-        } else {
-            callback(null, rows);
+    withCallback(all("getResources", query, [...params, limit ?? -1]), callback, "Error retrieving resources");
+}
+
+export async function getCacheEntry(key) {
+    const rows = await all("getCacheEntry", "SELECT value FROM content_cache WHERE key = ?", [key]);
+    if (rows.length === 0) {
+        return null;
+    }
+    // Queued like any other write, run bare it could land inside someone else's open transaction
+    inTransaction(() => rawRun("UPDATE content_cache SET lastUsed = ? WHERE key = ?", [Date.now(), key]))
+        .catch((err) => console.error("Error touching cache entry", err.message));
+    return rows[0].value;
+}
+
+// Stores the entry, then drops least recently used entries until the cache fits in maxBytes
+export function putCacheEntry(key, value, maxBytes) {
+    const size = Buffer.byteLength(value);
+    return inTransaction(async () => {
+        await rawRun("INSERT OR REPLACE INTO content_cache (key, value, size, lastUsed) VALUES (?, ?, ?, ?)",
+            [key, value, size, Date.now()]);
+        const [{ total }] = await rawAll("SELECT COALESCE(SUM(size), 0) AS total FROM content_cache");
+        let excess = total - maxBytes;
+        if (excess <= 0) {
+            return;
+        }
+        const oldest = await rawAll("SELECT key, size FROM content_cache WHERE key != ? ORDER BY lastUsed", [key]);
+        const evicted = [];
+        for (const entry of oldest) {
+            if (excess <= 0) {
+                break;
+            }
+            evicted.push(entry.key);
+            excess -= entry.size;
+        }
+        for (let start = 0; start < evicted.length; start += MAX_IDS_PER_QUERY) {
+            const batch = evicted.slice(start, start + MAX_IDS_PER_QUERY);
+            await rawRun(`DELETE FROM content_cache WHERE key IN (${batch.map(() => "?").join(", ")})`, batch);
         }
     });
 }
@@ -1,21 +1,38 @@
 import { GoogleGenerativeAI } from "@google/generative-ai";
 import { config } from "dotenv";
 import { schema } from "./questionSchema.js";
+import { cacheKey } from "./contentCache.js";
 
 config({ path: "./.env" });
 
 const geminiApiKey = process.env.GEMINI_API_KEY;
+const MODEL_NAME = "gemini-1.5-flash";
 
+// Built once and reused, the client and model hold no per-request state
+let model = null;
+
+function getModel() {
+    if (!model) {
+        const genAi = new GoogleGenerativeAI(geminiApiKey);
+        model = genAi.getGenerativeModel({
+            model: MODEL_NAME,
+            generationConfig: {
+                responseMimeType: "application/json",
+                responseSchema: schema,
+            },
+        });
+    }
+    return model;
+}
+
+// Answers for a prompt are cached by model, schema and prompt, any change to one is a new key.
+// "parsed" keeps the checked answers apart from the raw text earlier versions stored.
+export function generationCacheKey(prompt) {
+    return cacheKey("generation", MODEL_NAME, schema, "parsed", prompt);
+}
+
+// The model's raw answer, callers parse and check it before caching anything
 export async function callGeminiAPI(prompt) {
-    const genAi = new GoogleGenerativeAI(geminiApiKey);
-    const model = genAi.getGenerativeModel({
-        model: "gemini-1.5-flash",
-        generationConfig: {
-            responseMimeType: "application/json",
-            responseSchema: schema,
-        },
-    });
-    const result = await model.generateContent(prompt);
-    console.log(result.response.text())
+    const result = await getModel().generateContent(prompt);
     return result.response.text();
 }
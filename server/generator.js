@@ -0,0 +1,113 @@
+import { callGeminiAPI, generationCacheKey } from "./geminiAi.js";
+import { memoize } from "./contentCache.js";
+import { generateStubQuestions } from "./stubGenerator.js";
+import { timeStage } from "./metrics.js";
+import { planChunks, splitText } from "./chunking.js";
+
+// Long lectures are split into chunks that each get their own, smaller model call. Calls run
+// concurrently up to GENERATION_PARALLELISM and the per-chunk results are merged and de-duplicated.
+
+export const DEFAULT_QUESTION_COUNT = 10;
+export const MAX_QUESTION_COUNT = 50;
+const DEFAULT_PARALLELISM = Number.parseInt(process.env.GENERATION_PARALLELISM, 10) || 3;
+
+// QUESTION_GENERATOR=stub swaps the model for a local deterministic generator. It has to be asked
+// for explicitly: stub questions are saved and deduplicated by content hash like real ones, so a
+// server that fell back to it silently would pin fake questions to real PDFs for good.
+const useStub = process.env.QUESTION_GENERATOR === "stub";
+if (useStub) {
+    console.log("QUESTION_GENERATOR=stub, questions are generated locally without the model");
+} else if (!process.env.GEMINI_API_KEY) {
+    throw new Error("GEMINI_API_KEY is not set. Set it, or QUESTION_GENERATOR=stub for local testing.");
+}
+// Simulated model latency for the stub, so load tests see realistic job durations
+const STUB_LATENCY_MS = Number.parseInt(process.env.STUB_LATENCY_MS, 10) || 0;
+
+export function clampQuestionCount(value) {
+    const count = Number.parseInt(value, 10);
+    if (!Number.isInteger(count) || count <= 0) {
+        return DEFAULT_QUESTION_COUNT;
+    }
+    return Math.min(count, MAX_QUESTION_COUNT);
+}
+
+function buildPrompt(chunkText, count) {
+    return `Based on the following lecture content generate a list of questions.
+            Lecture content: ${chunkText}.
+            Please focus on the key concepts and important points from the lecture to create relevant questions. Provide ${count} questions.`
+}
+
+async function generateChunk(chunk) {
+    if (useStub) {
+        return timeStage("modelCall", async () => {
+            if (STUB_LATENCY_MS > 0) {
+                await new Promise((resolve) => setTimeout(resolve, STUB_LATENCY_MS));
+            }
+            return generateStubQuestions(chunk.text, chunk.count);
+        });
+    }
+
+    const prompt = await timeStage("promptBuild", () => buildPrompt(chunk.text, chunk.count));
+    return memoize("generation", generationCacheKey(prompt), async () => {
+        const response = await timeStage("modelCall", () => callGeminiAPI(prompt));
+        const parsed = await timeStage("jsonParse", () => JSON.parse(response));
+        // Only a usable answer is cached, a truncated or off-schema one is asked for again next time
+        return parsed && Array.isArray(parsed.questions) ? parsed : null;
+    });
+}
+
+async function mapWithConcurrency(items, limit, fn) {
+    const results = new Array(items.length);
+    let next = 0;
+    const workers = Array.from({ length: Math.min(limit, items.length) }, async () => {
+        while (next < items.length) {
+            const index = next++;
+            results[index] = await fn(items[index], index);
+        }
+    });
+    await Promise.all(workers);
+    return results;
+}
+
+function normalize(questionText) {
+    return questionText.toLowerCase().replace(/[^a-z0-9]+/g, " ").trim();
+}
+
+// Resolves with { lectureTitle, lectureContent, questions } in the shape the model schema uses,
+// or null when no chunk produced a usable question list. Questions repeating one in exclude are dropped.
+export async function generateQuestions(text, { count = DEFAULT_QUESTION_COUNT, parallelism = DEFAULT_PARALLELISM, exclude = [] } = {}) {
+    const chunks = splitText(text);
+    if (chunks.length === 0) {
+        return null;
+    }
+
+    const plan = planChunks(chunks, count);
+    const responses = await mapWithConcurrency(plan, parallelism, generateChunk);
+
+    const seen = new Set(exclude.map((question) => normalize(question.questionText || "")));
+    const questions = [];
+    let lectureTitle = null;
+    const lectureContent = [];
+    responses.forEach((response, i) => {
+        if (!response || !Array.isArray(response.questions)) {
+            return;
+        }
+        lectureTitle = lectureTitle || response.lectureTitle;
+        if (response.lectureContent) {
+            lectureContent.push(response.lectureContent);
+        }
+        // The model sometimes gives more than it was asked for, each chunk keeps only its share
+        for (const question of response.questions.slice(0, plan[i].count)) {
+            const key = normalize(question.questionText || "");
+            if (key.length > 0 && !seen.has(key)) {
+                seen.add(key);
+                questions.push(question);
+            }
+        }
+    });
+
+    if (questions.length === 0) {
+        return null;
+    }
+    return { lectureTitle, lectureContent: lectureContent.join("\n\n"), questions };
+}
@@ -0,0 +1,45 @@
+// Grading shared by /submit-answers. Matching is trimmed and case-insensitive, and an answer
+// may be an array of strings when any one of them being right is enough.
+
+function normalize(value) {
+    return String(value).trim().toLowerCase();
+}
+
+export function isCorrectAnswer(answer, correctAnswer) {
+    if (!answer || correctAnswer == null) {
+        return false;
+    }
+    const expected = normalize(correctAnswer);
+    return Array.isArray(answer)
+        ? answer.some((ans) => ans != null && normalize(ans) === expected)
+        : normalize(answer) === expected;
+}
+
+// answerKeys is [{ id, correctAnswer }] for the submitted ids that exist
+export function gradeAnswers(userAnswers, answerKeys) {
+    const keysById = new Map(answerKeys.map((key) => [key.id, key.correctAnswer]));
+
+    const results = [];
+    let score = 0;
+    for (const userAnswer of userAnswers) {
+        if (!keysById.has(userAnswer.questionId)) {
+            continue;
+        }
+        const correctAnswer = keysById.get(userAnswer.questionId);
+        // Each question is graded once even if the client sent it twice
+        keysById.delete(userAnswer.questionId);
+
+        const isCorrect = isCorrectAnswer(userAnswer.answer, correctAnswer);
+        if (isCorrect) {
+            score++;
+        }
+        results.push({
+            questionId: userAnswer.questionId,
+            userAnswer: userAnswer.answer ?? null,
+            correctAnswer,
+            isCorrect,
+        });
+    }
+
+    return { results, score, totalQuestions: results.length };
+}
@@ -1,18 +1,51 @@
 import express from "express";
-import pdfParse from "pdf-parse";
 import cors from "cors";
 import multer from "multer";
-import { getAllQuestions, getAllQuestionsByFileName, getResources, saveQuestion } from "./database.js";
+import { readFile, unlink } from "fs/promises";
+import { getAllQuestions, getAnswerKeysByIds, getQuestionsByFileName, getResources, reuseLecture } from "./database.js";
 import { callGeminiAPI } from './geminiAi.js';
+import { generateQuestionsFromPdf, hashFile } from "./pdfPipeline.js";
+import { clampQuestionCount } from "./generator.js";
+import { gradeAnswers } from "./grading.js";
+import uploadsRouter, { MAX_UPLOAD_BYTES } from "./uploads.js";
+import { enqueueJob, findActiveJob, getJob, isQueueFull, rejectBusy, waitForJob } from "./jobs.js";
+import { requestMetrics, snapshot, timedMiddleware } from "./metrics.js";
+import { QUESTIONS_BINARY_TYPE, encodeQuestionPage, sendEncoded } from "./wireFormat.js";
 
 const app = express();
-const port = 3000;
-const upload = multer();
+const port = Number.parseInt(process.env.PORT, 10) || 3000;
+// Uploads are streamed to disk instead of being buffered in req.file.buffer, up to the same size
+// the resumable path accepts
+const upload = multer({ dest: "uploads/", limits: { fileSize: MAX_UPLOAD_BYTES } });
+
+function receivePdf(req, res, next) {
+    upload.single("pdf")(req, res, (err) => {
+        if (err instanceof multer.MulterError && err.code === "LIMIT_FILE_SIZE") {
+            return res.status(413).json({ error: `Uploads are limited to ${MAX_UPLOAD_BYTES} bytes` });
+        }
+        next(err);
+    });
+}
+
+// Express already attaches an ETag to every res.json body and answers 304 when it matches
+// If-None-Match, so clients only need to be told how long they may reuse what they have.
+const RESOURCES_CACHE_CONTROL = "no-cache"; // always revalidate, the list changes on every upload
+const QUESTIONS_CACHE_CONTROL = "private, max-age=300, must-revalidate";
+// Later pages depend on the cursor a client got from an earlier one, so they are never reused unchecked
+const QUESTIONS_CURSOR_CACHE_CONTROL = "no-cache";
+
+app.set("etag", "strong");
 
 app.use(cors({
     origin: "*",
 }))
 
+// Matches the client's MAX_BATCH_BYTES with room to spare. body-parser skips a body that is already
+// parsed, so this has to come before the default 100 kB parser.
+const BATCH_BODY_LIMIT = "1mb";
+
+app.use(requestMetrics);
+app.use("/submit-answers/batch", express.json({ limit: BATCH_BODY_LIMIT }));
 app.use(express.json());
 
 app.post('/text', async (req,res) => {
@@ -26,44 +59,75 @@ app.post('/text', async (req,res) => {
     }
 });
 
-app.post('/upload-pdf', upload.single("pdf"), async (req,res) => {
+function removeUpload(filePath) {
+    unlink(filePath).catch((err) => console.error("Error removing upload", err.message));
+}
+
+app.post('/upload-pdf', timedMiddleware("multipartReceive", receivePdf), async (req,res) => {
+    // Once a job has been queued the upload is its to read and delete
+    let handedToJob = false;
     try {
         const fileName = req.headers['file-name'] || "unknown.pdf";
-        const dataBuffer = await pdfParse(req.file.buffer);
-        const extractedText = dataBuffer.text;
-        const prompt = `Based on the following lecture content generate a list of questions.
-            Lecture content: ${extractedText}.
-            Please focus on the key concepts and important points from the lecture to create relevant questions. Provide 10 questions.`
-
-        let response = await callGeminiAPI(prompt)
+        const questionCount = clampQuestionCount(req.headers['question-count']);
+        // Turned away before anything is read, a busy server should not pay for uploads it cannot take
+        if (isQueueFull()) {
+            return rejectBusy(res);
+        }
+        const contentHash = await hashFile(req.file.path);
 
-        if (typeof response === "string") {
-            response = JSON.parse(response);
+        // Fewer stored questions than asked for are topped up by the job below
+        const existing = await reuseLecture(contentHash, fileName);
+        if (existing.length > 0 && existing.length >= questionCount) {
+            return res.json({ questions: existing, deduplicated: true });
+        }
+        const active = findActiveJob(contentHash, { fileName, requestedCount: questionCount });
+        if (active) {
+            return res.status(202).json(active);
         }
 
-        if (response && response.questions && Array.isArray(response.questions)) {
-            for (const question of response.questions) {
-                const questionData = {
-                    fileName,
-                    lectureTitle: response.lectureTitle,
-                    lectureContent: response.lectureContent,
-                    questionText: question.questionText,
-                    questionType: question.questionType,
-                    choices: question.choices,
-                    correctAnswer: question.correctAnswer,
-                    difficultyLevel: question.difficultyLevel,
-                    dateCreated: new Date().toISOString()
-                };
-                saveQuestion(questionData);
+        // Parsing and generation run as a job, poll /jobs/:id for the outcome. The file stays on
+        // disk while the job is queued and is only read into memory once it starts.
+        const filePath = req.file.path;
+        const job = enqueueJob(fileName, async () => {
+            try {
+                return await generateQuestionsFromPdf(await readFile(filePath), fileName, contentHash,
+                    questionCount - existing.length, existing);
+            } finally {
+                removeUpload(filePath);
             }
-            res.json({ questions: response.questions });
-        } else {
-            res.status(500).json({ error: "Invalid response format. 'questions' field is missing or not an array." });
-        }
+        }, { contentHash, requestedCount: questionCount });
+        handedToJob = true;
+        res.status(202).json(job);
     } catch (error) {
         console.error(error);
         res.status(500).json({ error: "Something went wrong" });
+    } finally {
+        if (req.file && !handedToJob) {
+            removeUpload(req.file.path);
+        }
+    }
+});
+
+app.use("/uploads", uploadsRouter);
+
+// Latency histograms per route, pipeline stage and DB query, plus in-flight and job queue gauges
+app.get("/metrics", (req, res) => {
+    res.set("Cache-Control", "no-store");
+    res.json(snapshot());
+});
+
+const MAX_JOB_WAIT_SECONDS = 25;
+
+// ?wait=<seconds> long-polls until the job finishes instead of answering immediately
+app.get("/jobs/:id", async (req, res) => {
+    const wait = Math.min(Number.parseInt(req.query.wait, 10) || 0, MAX_JOB_WAIT_SECONDS);
+    if (!getJob(req.params.id)) {
+        return res.status(404).json({ error: "Unknown job" });
     }
+
+    const job = await waitForJob(req.params.id, wait * 1000);
+    res.set("Cache-Control", "no-store");
+    res.json(job);
 });
 
 app.get("/questions", (req, res) => {
@@ -76,62 +140,114 @@ app.get("/questions", (req, res) => {
     });
 });
 
+const DEFAULT_PAGE_SIZE = 50;
+const MAX_PAGE_SIZE = 200;
+
+function pageSize(value) {
+    const limit = Number.parseInt(value, 10);
+    return Number.isInteger(limit) && limit > 0 ? Math.min(limit, MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+}
+
+// Pages are fetched with one extra row, which only tells us whether another page exists
+function toPage(rows, limit, cursorOf) {
+    const hasMore = rows.length > limit;
+    const items = hasMore ? rows.slice(0, limit) : rows;
+    return { items, nextCursor: hasMore ? cursorOf(items[items.length - 1]) : null };
+}
+
+// ?after=<id>&limit=<n> pages through the file's questions, ?since=<id> is accepted as an alias of after.
+// Rows are { id, questionText, choices, correctAnswer }. Clients that list QUESTIONS_BINARY_TYPE in
+// Accept get the binary encoding from wireFormat.js instead of JSON.
 app.get("/questions/:fileName", (req, res) => {
     const fileName = req.params.fileName;
+    const hasCursor = (req.query.after ?? req.query.since) !== undefined;
+    const after = Number.parseInt(req.query.after ?? req.query.since, 10);
+    const limit = pageSize(req.query.limit);
 
-    getAllQuestionsByFileName(fileName, (err, rows) => {
+    getQuestionsByFileName(fileName, { afterId: Number.isInteger(after) && after > 0 ? after : 0, limit: limit + 1 }, (err, rows) => {
         if (err) {
             res.status(500).json({ error: "Could not retrieve questions" });
         } else {
-            res.json({ questions: rows });
+            const page = toPage(rows, limit, (row) => String(row.id));
+            res.set("Cache-Control", hasCursor ? QUESTIONS_CURSOR_CACHE_CONTROL : QUESTIONS_CACHE_CONTROL);
+            const body = req.accepts(["application/json", QUESTIONS_BINARY_TYPE]) === QUESTIONS_BINARY_TYPE
+                ? encodeQuestionPage(page.items, page.nextCursor)
+                : JSON.stringify({ questions: page.items, nextCursor: page.nextCursor });
+            sendEncoded(req, res, body, typeof body === "string" ? "application/json" : QUESTIONS_BINARY_TYPE)
+                .catch((error) => {
+                    console.error(error);
+                    res.status(500).json({ error: "Could not encode questions" });
+                });
         }
     });
 });
 
+// ?after=<fileName>&limit=<n> pages through resources, ?updatedSince=<ISO date> keeps only files with new lectures
 app.get("/resources", (req,res) => {
-    getResources((err, rows) => {
+    const limit = pageSize(req.query.limit);
+    const options = {
+        afterFileName: req.query.after ?? null,
+        limit: limit + 1,
+        updatedSince: req.query.updatedSince ?? null,
+    };
+
+    getResources(options, (err, rows) => {
         if (err) {
             res.status(500).json({ error: "Could not retrieve resources" })
         } else {
-            res.json({ questions: rows });
+            const page = toPage(rows, limit, (row) => row.fileName);
+            res.set("Cache-Control", RESOURCES_CACHE_CONTROL);
+            sendEncoded(req, res, JSON.stringify({ questions: page.items, nextCursor: page.nextCursor }), "application/json")
+                .catch((error) => {
+                    console.error(error);
+                    res.status(500).json({ error: "Could not encode resources" });
+                });
         }
     })
 });
 
-app.post("/submit-answers", (req,res) => {
+app.post("/submit-answers", async (req,res) => {
     const userAnswers = req.body.answers;
+    if (!Array.isArray(userAnswers)) {
+        return res.status(400).json({ error: "'answers' must be an array" });
+    }
 
-    getAllQuestions((err, questions) => {
-        if(err) {
-            return res.status(500).json({ error:"Could not retrieve questions" })
-        }
-
-        const filteredQuestions = questions.filter(question => 
-            userAnswers.some(answer => answer.questionId === question.id)
-        );
-
-        const results = filteredQuestions.map((question) => {
-            const userAnswer = userAnswers.find((a) => a.questionId === question.id);
-            const isCorrect = userAnswer && userAnswer.answer
-                ? Array.isArray(userAnswer.answer)
-                    ? userAnswer.answer.some((ans) => ans.trim().toLowerCase() === question.correctAnswer.trim().toLowerCase())
-                    : userAnswer.answer.trim().toLowerCase() === question.correctAnswer.trim().toLowerCase()
-                : false;
-            return {
-                questionId: question.id,
-                questionText: question.questionText,
-                userAnswer: userAnswer ? userAnswer.answer : null,
-                correctAnswer: question.correctAnswer,
-                isCorrect,
-            };
-        });
-
-        const score = results.filter((result) => result.isCorrect).length;
-        res.json({ results, score, totalQuestions: filteredQuestions.length });
-    })
+    try {
+        const answers = userAnswers.filter((answer) => answer && Number.isInteger(answer.questionId));
+        const answerKeys = await getAnswerKeysByIds([...new Set(answers.map((answer) => answer.questionId))]);
+        res.json(gradeAnswers(answers, answerKeys));
+    } catch (error) {
+        res.status(500).json({ error: "Could not retrieve questions" });
+    }
 })
 
 
+// Attempts queued on a device go up together: { attempts: [ { id, answers: [...] } ] }.
+// The answer keys for the whole batch are looked up at once, each attempt is graded on its own
+// and comes back under the id the client sent.
+const MAX_ATTEMPTS_PER_BATCH = 100;
+
+app.post("/submit-answers/batch", async (req, res) => {
+    const attempts = req.body.attempts;
+    if (!Array.isArray(attempts) || attempts.length > MAX_ATTEMPTS_PER_BATCH) {
+        return res.status(400).json({ error: `'attempts' must be an array of at most ${MAX_ATTEMPTS_PER_BATCH}` });
+    }
+
+    try {
+        const submitted = attempts.map((attempt) => ({
+            id: attempt?.id ?? null,
+            answers: Array.isArray(attempt?.answers)
+                ? attempt.answers.filter((answer) => answer && Number.isInteger(answer.questionId))
+                : [],
+        }));
+        const questionIds = new Set(submitted.flatMap(({ answers }) => answers.map((answer) => answer.questionId)));
+        const answerKeys = await getAnswerKeysByIds([...questionIds]);
+        res.json({ attempts: submitted.map(({ id, answers }) => ({ id, ...gradeAnswers(answers, answerKeys) })) });
+    } catch (error) {
+        res.status(500).json({ error: "Could not retrieve questions" });
+    }
+})
+
 app.listen(port, () => {
     console.log(`Server is running on localhost:${port}`);
 });
@@ -0,0 +1,151 @@
+import { EventEmitter } from "events";
+import { randomUUID } from "crypto";
+import { observe, registerGauge } from "./metrics.js";
+
+// In-memory generation jobs. Uploads return a job id straight away and the heavy work
+// (PDF parsing and the model call) runs here with bounded concurrency, so no HTTP request
+// has to stay open for the length of a generation.
+
+const MAX_CONCURRENT_JOBS = Number.parseInt(process.env.GENERATION_CONCURRENCY, 10) || 2;
+const FINISHED_JOB_TTL_MS = 30 * 60 * 1000;
+const MAX_QUEUED_JOBS = Number.parseInt(process.env.GENERATION_QUEUE_LIMIT, 10) || 50;
+
+const jobs = new Map();
+// contentHash -> ids of the jobs still working on that content, one per file name and count asked for
+const activeByHash = new Map();
+const queue = [];
+const events = new EventEmitter();
+events.setMaxListeners(0);
+let running = 0;
+
+registerGauge("jobs.queued", () => queue.length);
+registerGauge("jobs.running", () => running);
+
+function toStatus(job) {
+    return {
+        jobId: job.id,
+        status: job.status,
+        fileName: job.fileName,
+        questionCount: job.questionCount,
+        error: job.error,
+    };
+}
+
+function isFinished(job) {
+    return job.status === "completed" || job.status === "failed";
+}
+
+function update(job, changes) {
+    Object.assign(job, changes, { updatedAt: Date.now() });
+    events.emit(job.id, job);
+    if (isFinished(job)) {
+        const active = activeByHash.get(job.contentHash);
+        if (active) {
+            active.delete(job.id);
+            if (active.size === 0) {
+                activeByHash.delete(job.contentHash);
+            }
+        }
+        setTimeout(() => jobs.delete(job.id), FINISHED_JOB_TTL_MS).unref();
+    }
+}
+
+function drain() {
+    while (running < MAX_CONCURRENT_JOBS && queue.length > 0) {
+        const { job, task } = queue.shift();
+        running++;
+        observe("jobs.wait", Date.now() - job.updatedAt);
+        update(job, { status: "processing" });
+        const startedAt = job.updatedAt;
+        Promise.resolve()
+            .then(task)
+            .then((questions) => {
+                if (questions) {
+                    update(job, { status: "completed", questionCount: questions.length });
+                } else {
+                    update(job, { status: "failed", error: "Invalid response format. 'questions' field is missing or not an array." });
+                }
+            })
+            .catch((error) => {
+                console.error(error);
+                const busy = error.name === "PoolSaturatedError" || error.name === "ParseTimeoutError";
+                update(job, { status: "failed", error: busy ? error.message : "Something went wrong" });
+            })
+            .finally(() => {
+                observe("jobs.run", Date.now() - startedAt);
+                running--;
+                drain();
+            });
+    }
+}
+
+// True when uploads should be turned away with a 429 instead of being queued. Every parse
+// comes from a running job, so the PDF pool never sees more than MAX_CONCURRENT_JOBS at once.
+export function isQueueFull() {
+    return queue.length >= MAX_QUEUED_JOBS;
+}
+
+export function rejectBusy(res) {
+    res.set("Retry-After", "30");
+    res.status(429).json({ error: "Too many uploads are being processed, try again later" });
+}
+
+// task resolves with the generated questions, or null when the model answered in the wrong shape.
+// While the job runs, findActiveJob hands it to repeat uploads of the same content, name and count.
+export function enqueueJob(fileName, task, { contentHash = null, requestedCount = 0 } = {}) {
+    const job = {
+        id: randomUUID(), status: "queued", fileName, contentHash, requestedCount, questionCount: 0, error: null, updatedAt: Date.now(),
+    };
+    jobs.set(job.id, job);
+    if (contentHash) {
+        activeByHash.set(contentHash, (activeByHash.get(contentHash) ?? new Set()).add(job.id));
+    }
+    queue.push({ job, task });
+    drain();
+    return toStatus(job);
+}
+
+// A queued or running job for this content, so a retry or double tap doesn't generate twice.
+// Given a fileName, only a job saving under that name with at least requestedCount questions counts.
+export function findActiveJob(contentHash, { fileName = null, requestedCount = 0 } = {}) {
+    for (const id of activeByHash.get(contentHash) ?? []) {
+        const job = jobs.get(id);
+        if ((fileName === null || job.fileName === fileName) && job.requestedCount >= requestedCount) {
+            return toStatus(job);
+        }
+    }
+    return null;
+}
+
+// How many queued or running jobs are working on this content
+export function countActiveJobs(contentHash) {
+    return activeByHash.get(contentHash)?.size ?? 0;
+}
+
+export function getJob(id) {
+    const job = jobs.get(id);
+    return job ? toStatus(job) : null;
+}
+
+// Resolves once the job has finished or waitMs has passed, whichever comes first
+export function waitForJob(id, waitMs) {
+    const job = jobs.get(id);
+    if (!job || isFinished(job) || waitMs <= 0) {
+        return Promise.resolve(job ? toStatus(job) : null);
+    }
+
+    return new Promise((resolve) => {
+        const onUpdate = (updated) => {
+            if (isFinished(updated)) {
+                done();
+            }
+        };
+        const done = () => {
+            clearTimeout(timer);
+            events.off(id, onUpdate);
+            resolve(getJob(id));
+        };
+        const timer = setTimeout(done, waitMs);
+        events.on(id, onUpdate);
+    });
+}
@@ -0,0 +1,61 @@
+// Builds small but valid PDFs with real text in them, so uploads go through pdf-parse and the
+// generator like a lecture would. A different salt gives a different content hash, which keeps
+// uploads from being answered by the dedup lookup.
+
+const WORDS = ("activity lifecycle intent service broadcast receiver content provider fragment layout " +
+    "view group recycler adapter holder thread handler looper executor database cursor migration " +
+    "network request response cache header compression latency throughput memory allocation").split(" ");
+
+function sentence(seed, index) {
+    const words = [];
+    for (let i = 0; i < 10; i++) {
+        words.push(WORDS[(seed * 31 + index * 7 + i * 13) % WORDS.length]);
+    }
+    words[0] = words[0][0].toUpperCase() + words[0].slice(1);
+    return `${words.join(" ")}.`;
+}
+
+function escape(text) {
+    return text.replace(/[\\()]/g, (c) => `\\${c}`);
+}
+
+function lectureLines(salt, lines) {
+    const text = [`Lecture ${salt}`];
+    for (let i = 0; i < lines; i++) {
+        text.push(sentence(salt, i));
+    }
+    return text;
+}
+
+export function makePdf({ salt = 0, lines = 40 } = {}) {
+    const text = lectureLines(salt, lines);
+    const stream = ["BT", "/F1 10 Tf", "14 TL", "40 800 Td"]
+        .concat(text.map((line) => `(${escape(line)}) '`))
+        .concat(["ET"])
+        .join("\n");
+
+    const objects = [
+        "<< /Type /Catalog /Pages 2 0 R >>",
+        "<< /Type /Pages /Kids [3 0 R] /Count 1 >>",
+        "<< /Type /Page /Parent 2 0 R /MediaBox [0 0 595 842] /Contents 4 0 R /Resources << /Font << /F1 5 0 R >> >> >>",
+        `<< /Length ${Buffer.byteLength(stream)} >>\nstream\n${stream}\nendstream`,
+        "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>",
+    ];
+
+    let body = "%PDF-1.4\n";
+    const offsets = [];
+    objects.forEach((object, i) => {
+        offsets.push(Buffer.byteLength(body));
+        body += `${i + 1} 0 obj\n${object}\nendobj\n`;
+    });
+    const xrefOffset = Buffer.byteLength(body);
+    body += `xref\n0 ${objects.length + 1}\n0000000000 65535 f \n`;
+    body += offsets.map((offset) => `${String(offset).padStart(10, "0")} 00000 n \n`).join("");
+    body += `trailer\n<< /Size ${objects.length + 1} /Root 1 0 R >>\nstartxref\n${xrefOffset}\n%%EOF\n`;
+    return Buffer.from(body, "latin1");
+}
+
+// The same lecture as plain text, for seeding without going through pdf-parse
+export function lectureText(salt, lines = 40) {
+    return lectureLines(salt, lines).join("\n\n");
+}
@@ -0,0 +1,239 @@
+// Load test for the Express server.
+//
+//   npm run loadtest -- [--concurrency 20] [--duration 15] [--scenarios resources,questions,submit,upload]
+//                       [--base-url http://host:port] [--max-p95 250] [--out results.json]
+//
+// Without --base-url it starts index.js itself on PORT 3100 against loadtest/loadtest.db (run
+// `npm run loadtest:seed` first) with the stub generator, so no model calls are made.
+// Every scenario runs on its own for --duration seconds with --concurrency workers, then
+// throughput and p50/p95/p99 latency are printed. An upload is timed until its job has
+// finished, and a 429 from a full queue is counted as rejected rather than as an error.
+// The exit code is 1 when a scenario had more than 1% errors or went over --max-p95.
+
+import { spawn } from "child_process";
+import { existsSync } from "fs";
+import { fileURLToPath } from "url";
+import path from "path";
+import { parseArgs } from "util";
+import { writeFile } from "fs/promises";
+import { makePdf } from "./pdf.js";
+
+const { values } = parseArgs({
+    options: {
+        concurrency: { type: "string", default: "20" },
+        duration: { type: "string", default: "15" },
+        scenarios: { type: "string", default: "resources,questions,submit,upload" },
+        "base-url": { type: "string" },
+        "max-p95": { type: "string" },
+        out: { type: "string" },
+    },
+});
+
+const serverDir = path.dirname(path.dirname(fileURLToPath(import.meta.url)));
+const concurrency = Number.parseInt(values.concurrency, 10);
+const durationMs = Number.parseFloat(values.duration) * 1000;
+const maxP95 = values["max-p95"] ? Number.parseFloat(values["max-p95"]) : null;
+const LOCAL_PORT = 3100;
+const JOB_WAIT_SECONDS = 25;
+// How long a worker holds off after a 429, the server's Retry-After would outlast the scenario
+const REJECTED_PAUSE_MS = 250;
+
+// The server turned the request away to protect itself, which is not a failure of the request
+class Rejected extends Error {}
+
+function percentile(sorted, p) {
+    if (sorted.length === 0) {
+        return 0;
+    }
+    return sorted[Math.min(sorted.length - 1, Math.ceil((sorted.length * p) / 100) - 1)];
+}
+
+function pick(items) {
+    return items[Math.floor(Math.random() * items.length)];
+}
+
+async function startServer() {
+    const dbPath = path.join(serverDir, "loadtest", "loadtest.db");
+    if (!existsSync(dbPath)) {
+        throw new Error("No seeded database, run `npm run loadtest:seed` first");
+    }
+    const child = spawn(process.execPath, ["index.js"], {
+        cwd: serverDir,
+        env: { ...process.env, PORT: String(LOCAL_PORT), DB_PATH: dbPath, QUESTION_GENERATOR: "stub" },
+        stdio: ["ignore", "pipe", "inherit"],
+    });
+    await new Promise((resolve, reject) => {
+        child.once("exit", (code) => reject(new Error(`Server exited with ${code}`)));
+        child.stdout.on("data", (data) => {
+            if (data.toString().includes("Server is running")) {
+                resolve();
+            }
+        });
+    });
+    // Keep draining stdout so the server never blocks on a full pipe
+    child.stdout.resume();
+    return child;
+}
+
+async function expectOk(response) {
+    // The body is always read, so the timing includes the transfer and not just the headers
+    await response.arrayBuffer();
+    if (response.status === 429) {
+        throw new Rejected();
+    }
+    if (!response.ok) {
+        throw new Error(`HTTP ${response.status}`);
+    }
+}
+
+// Long-polls the job an upload started until it has finished
+async function awaitJob(baseUrl, response) {
+    if (response.status === 429) {
+        await response.arrayBuffer();
+        throw new Rejected();
+    }
+    if (!response.ok) {
+        await response.arrayBuffer();
+        throw new Error(`HTTP ${response.status}`);
+    }
+    let job = await response.json();
+    // A dedup hit answers with the questions straight away
+    while (job.jobId && job.status !== "completed" && job.status !== "failed") {
+        const poll = await fetch(new URL(`/jobs/${job.jobId}?wait=${JOB_WAIT_SECONDS}`, baseUrl));
+        if (!poll.ok) {
+            await poll.arrayBuffer();
+            throw new Error(`HTTP ${poll.status} polling job`);
+        }
+        job = await poll.json();
+    }
+    if (job.status === "failed") {
+        throw new Error(`Job failed: ${job.error}`);
+    }
+}
+
+// Looks up what the scenarios need from the running server itself
+async function loadFixtures(baseUrl) {
+    const fileNames = [];
+    let after = null;
+    do {
+        const url = new URL("/resources", baseUrl);
+        url.searchParams.set("limit", "200");
+        if (after) {
+            url.searchParams.set("after", after);
+        }
+        const page = await (await fetch(url)).json();
+        fileNames.push(...page.questions.map((resource) => resource.fileName));
+        after = page.nextCursor;
+    } while (after);
+    if (fileNames.length === 0) {
+        throw new Error("The server has no lectures, seed it first");
+    }
+
+    const quizzes = [];
+    for (const fileName of fileNames.slice(0, 50)) {
+        const page = await (await fetch(new URL(`/questions/${encodeURIComponent(fileName)}?limit=200`, baseUrl))).json();
+        quizzes.push(page.questions.map((q) => ({ id: q.id, choices: q.choices })));
+    }
+    return { fileNames, quizzes };
+}
+
+function scenarios(baseUrl, fixtures) {
+    let uploadSalt = Date.now();
+    return {
+        resources: async () => {
+            await expectOk(await fetch(new URL("/resources?limit=50", baseUrl)));
+        },
+        questions: async () => {
+            const fileName = pick(fixtures.fileNames);
+            await expectOk(await fetch(new URL(`/questions/${encodeURIComponent(fileName)}?limit=50`, baseUrl)));
+        },
+        submit: async () => {
+            const answers = pick(fixtures.quizzes).map((q) => ({ questionId: q.id, answer: pick(q.choices) }));
+            await expectOk(await fetch(new URL("/submit-answers", baseUrl), {
+                method: "POST",
+                headers: { "Content-Type": "application/json" },
+                body: JSON.stringify({ answers }),
+            }));
+        },
+        // A fresh PDF every time, so each upload is a real parse and generation job rather than a dedup hit
+        upload: async () => {
+            const form = new FormData();
+            const salt = uploadSalt++;
+            form.append("pdf", new Blob([makePdf({ salt })], { type: "application/pdf" }), `load-${salt}.pdf`);
+            await awaitJob(baseUrl, await fetch(new URL("/upload-pdf", baseUrl), {
+                method: "POST",
+                headers: { "file-name": `load-${salt}.pdf`, "question-count": "10" },
+                body: form,
+            }));
+        },
+    };
+}
+
+async function runScenario(name, request) {
+    const latencies = [];
+    let errors = 0;
+    let rejected = 0;
+    const started = performance.now();
+    const deadline = started + durationMs;
+
+    await Promise.all(Array.from({ length: concurrency }, async () => {
+        while (performance.now() < deadline) {
+            const start = performance.now();
+            try {
+                await request();
+                latencies.push(performance.now() - start);
+            } catch (err) {
+                if (err instanceof Rejected) {
+                    rejected++;
+                    await new Promise((resolve) => setTimeout(resolve, REJECTED_PAUSE_MS));
+                } else {
+                    errors++;
+                }
+            }
+        }
+    }));
+
+    const elapsedSeconds = (performance.now() - started) / 1000;
+    latencies.sort((a, b) => a - b);
+    const round = (ms) => Math.round(ms * 10) / 10;
+    return {
+        scenario: name,
+        requests: latencies.length,
+        errors,
+        rejected,
+        rps: Math.round((latencies.length / elapsedSeconds) * 10) / 10,
+        p50Ms: round(percentile(latencies, 50)),
+        p95Ms: round(percentile(latencies, 95)),
+        p99Ms: round(percentile(latencies, 99)),
+        maxMs: round(latencies.at(-1) ?? 0),
+    };
+}
+
+const server = values["base-url"] ? null : await startServer();
+const baseUrl = values["base-url"] || `http://127.0.0.1:${LOCAL_PORT}`;
+let failed = false;
+try {
+    const fixtures = await loadFixtures(baseUrl);
+    const all = scenarios(baseUrl, fixtures);
+    const results = [];
+    for (const name of values.scenarios.split(",").map((s) => s.trim()).filter(Boolean)) {
+        if (!all[name]) {
+            throw new Error(`Unknown scenario ${name}`);
+        }
+        const result = await runScenario(name, all[name]);
+        results.push(result);
+        const total = result.requests + result.errors;
+        if ((total > 0 && result.errors / total > 0.01) || (maxP95 !== null && result.p95Ms > maxP95)) {
+            failed = true;
+        }
+    }
+
+    console.log(`concurrency ${concurrency}, ${durationMs / 1000}s per scenario against ${baseUrl}`);
+    console.table(results);
+    if (values.out) {
+        await writeFile(values.out, JSON.stringify({ concurrency, durationMs, results }, null, 2));
+    }
+} finally {
+    server?.kill();
+}
+process.exit(failed ? 1 : 0);
@@ -0,0 +1,47 @@
+// Seeds a fresh database for the load test.
+//
+//   DB_PATH=loadtest/loadtest.db node loadtest/seed.js [--lectures 300] [--questions 25]
+//
+// Lectures and questions come from the stub generator, so rows have realistic lengths.
+
+import { rm } from "fs/promises";
+import { parseArgs } from "util";
+import { lectureText } from "./pdf.js";
+import { generateStubQuestions } from "../stubGenerator.js";
+
+const { values } = parseArgs({
+    options: {
+        lectures: { type: "string", default: "300" },
+        questions: { type: "string", default: "25" },
+    },
+});
+
+const dbPath = process.env.DB_PATH;
+if (!dbPath) {
+    console.error("Set DB_PATH, seeding replaces the database it points at");
+    process.exit(1);
+}
+
+for (const suffix of ["", "-wal", "-shm"]) {
+    await rm(`${dbPath}${suffix}`, { force: true });
+}
+
+// Imported only now so database.js opens the fresh file
+const { saveLecture } = await import("../database.js");
+
+const lectures = Number.parseInt(values.lectures, 10);
+const perLecture = Number.parseInt(values.questions, 10);
+const started = Date.now();
+for (let i = 0; i < lectures; i++) {
+    const text = lectureText(i);
+    const generated = await generateStubQuestions(text, perLecture);
+    await saveLecture({
+        fileName: `lecture-${String(i).padStart(4, "0")}.pdf`,
+        contentHash: null,
+        lectureTitle: generated.lectureTitle,
+        lectureContent: generated.lectureContent,
+        questions: generated.questions,
+    });
+}
+console.log(`Seeded ${lectures} lectures with ${lectures * perLecture} questions in ${Date.now() - started} ms`);
+process.exit(0);
@@ -0,0 +1,161 @@
+// In-process metrics for /metrics: latency histograms (per route, per pipeline stage and per DB
+// query), counters and gauges. Everything is plain objects in memory and resets on restart.
+
+// Upper bounds in milliseconds, the last bucket catches everything slower
+const BUCKETS_MS = [1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, Infinity];
+
+const histograms = new Map();
+const counters = new Map();
+const gauges = new Map();
+const startedAt = Date.now();
+
+class Histogram {
+    constructor() {
+        this.counts = new Array(BUCKETS_MS.length).fill(0);
+        this.count = 0;
+        this.sum = 0;
+        this.max = 0;
+    }
+
+    observe(ms) {
+        let i = 0;
+        while (ms > BUCKETS_MS[i]) {
+            i++;
+        }
+        this.counts[i]++;
+        this.count++;
+        this.sum += ms;
+        this.max = Math.max(this.max, ms);
+    }
+
+    // Upper bound of the bucket the percentile falls in, capped at the slowest value seen
+    percentile(p) {
+        if (this.count === 0) {
+            return 0;
+        }
+        const rank = Math.max(1, Math.ceil((this.count * p) / 100));
+        let seen = 0;
+        for (let i = 0; i < BUCKETS_MS.length; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKETS_MS[i], this.max);
+            }
+        }
+        return this.max;
+    }
+
+    toJSON() {
+        return {
+            count: this.count,
+            meanMs: this.count === 0 ? 0 : round(this.sum / this.count),
+            p50Ms: round(this.percentile(50)),
+            p95Ms: round(this.percentile(95)),
+            p99Ms: round(this.percentile(99)),
+            maxMs: round(this.max),
+        };
+    }
+}
+
+function round(ms) {
+    return Math.round(ms * 100) / 100;
+}
+
+function histogram(name) {
+    let h = histograms.get(name);
+    if (!h) {
+        h = new Histogram();
+        histograms.set(name, h);
+    }
+    return h;
+}
+
+export function observe(name, ms) {
+    histogram(name).observe(ms);
+}
+
+export function increment(name, by = 1) {
+    counters.set(name, (counters.get(name) || 0) + by);
+}
+
+export function addGauge(name, by) {
+    gauges.set(name, (gauges.get(name) || 0) + by);
+}
+
+// Gauges computed when /metrics is read, e.g. job queue depth
+const gaugeProviders = new Map();
+
+export function registerGauge(name, read) {
+    gaugeProviders.set(name, read);
+}
+
+function elapsedMs(start) {
+    return Number(process.hrtime.bigint() - start) / 1e6;
+}
+
+// Times fn under "stage.<name>", failures are timed too and counted separately
+export async function timeStage(name, fn) {
+    const start = process.hrtime.bigint();
+    try {
+        return await fn();
+    } catch (err) {
+        increment(`stage.${name}.errors`);
+        throw err;
+    } finally {
+        observe(`stage.${name}`, elapsedMs(start));
+    }
+}
+
+export async function timeQuery(name, promise) {
+    const start = process.hrtime.bigint();
+    try {
+        return await promise;
+    } finally {
+        observe(`db.${name}`, elapsedMs(start));
+    }
+}
+
+// Times an Express middleware (e.g. multer) as a pipeline stage
+export function timedMiddleware(name, middleware) {
+    return (req, res, next) => {
+        const start = process.hrtime.bigint();
+        middleware(req, res, (err) => {
+            observe(`stage.${name}`, elapsedMs(start));
+            next(err);
+        });
+    };
+}
+
+// Per-route latency and in-flight gauge. The route pattern is only known once Express has matched
+// it, so the key is taken when the response finishes and in-flight is tracked per method.
+export function requestMetrics(req, res, next) {
+    const start = process.hrtime.bigint();
+    const inFlight = `http.inFlight.${req.method}`;
+    addGauge(inFlight, 1);
+    let done = false;
+    const finish = () => {
+        if (done) {
+            return;
+        }
+        done = true;
+        addGauge(inFlight, -1);
+        const route = req.route ? `${req.baseUrl}${req.route.path}` : "unmatched";
+        observe(`http.${req.method} ${route}`, elapsedMs(start));
+        increment(`http.status.${res.statusCode}`);
+    };
+    res.on("finish", finish);
+    res.on("close", finish);
+    next();
+}
+
+export function snapshot() {
+    const computed = {};
+    for (const [name, read] of gaugeProviders) {
+        computed[name] = read();
+    }
+    return {
+        uptimeSeconds: Math.round((Date.now() - startedAt) / 1000),
+        histograms: Object.fromEntries(histograms),
+        counters: Object.fromEntries(counters),
+        gauges: { ...Object.fromEntries(gauges), ...computed },
+    };
+}
@@ -0,0 +1,40 @@
+import { createHash } from "crypto";
+import { createReadStream } from "fs";
+import { saveLecture } from "./database.js";
+import { DEFAULT_QUESTION_COUNT, generateQuestions } from "./generator.js";
+import { timeStage } from "./metrics.js";
+import { memoize } from "./contentCache.js";
+import { extractPdfText } from "./pdfWorkerPool.js";
+
+// Hashes the file as it streams past, so the content can be looked up before it is read into memory
+export async function hashFile(filePath) {
+    const hash = createHash("sha256");
+    for await (const data of createReadStream(filePath)) {
+        hash.update(data);
+    }
+    return hash.digest("hex");
+}
+
+// Parses the PDF, asks the model for questions and stores them under fileName. existingQuestions
+// are already stored for it, new questions repeating one of them are dropped. Resolves with the
+// existing and generated questions, or null when the model answered in the wrong shape.
+export async function generateQuestionsFromPdf(pdfBuffer, fileName, contentHash, questionCount = DEFAULT_QUESTION_COUNT,
+                                               existingQuestions = []) {
+    // contentHash is the SHA-256 of pdfBuffer, so it addresses the extracted text directly
+    const text = await memoize("pdfText", `pdfText:${contentHash}`,
+        () => timeStage("pdfParse", () => extractPdfText(pdfBuffer)));
+    const response = await timeStage("generate", () => generateQuestions(text, { count: questionCount, exclude: existingQuestions }));
+
+    if (!response) {
+        return null;
+    }
+
+    await timeStage("dbInsert", () => saveLecture({
+        fileName,
+        contentHash,
+        lectureTitle: response.lectureTitle,
+        lectureContent: response.lectureContent,
+        questions: response.questions,
+    }));
+    return [...existingQuestions, ...response.questions];
+}
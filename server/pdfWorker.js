@@ -0,0 +1,12 @@
+import { parentPort } from "worker_threads";
+import pdfParse from "pdf-parse";
+
+// Runs in a worker thread from pdfWorkerPool.js, one PDF at a time
+parentPort.on("message", async ({ id, data }) => {
+    try {
+        const result = await pdfParse(Buffer.from(data.buffer, data.byteOffset, data.byteLength));
+        parentPort.postMessage({ id, text: result.text });
+    } catch (err) {
+        parentPort.postMessage({ id, error: err.message || String(err) });
+    }
+});
@@ -0,0 +1,119 @@
+import { Worker } from "worker_threads";
+import { availableParallelism } from "os";
+import { observe, registerGauge } from "./metrics.js";
+
+// pdf-parse is synchronous CPU work for most of its run, so it happens in worker threads and
+// never on the event loop that serves the read endpoints. The pool has a fixed number of
+// workers and a bounded queue in front of them. Parses only come from generation jobs, whose
+// concurrency limit is what keeps the pool fed without backing up, so the queue bound is a
+// backstop: past it extractPdfText rejects with PoolSaturatedError. A parse that runs past
+// PDF_PARSE_TIMEOUT_MS has its worker terminated.
+
+const POOL_SIZE = Number.parseInt(process.env.PDF_WORKERS, 10) || Math.max(1, Math.min(4, availableParallelism() - 1));
+const MAX_QUEUED = Number.parseInt(process.env.PDF_QUEUE_LIMIT, 10) || 16;
+const TIMEOUT_MS = Number.parseInt(process.env.PDF_PARSE_TIMEOUT_MS, 10) || 30000;
+const WORKER_URL = new URL("./pdfWorker.js", import.meta.url);
+
+export class PoolSaturatedError extends Error {
+    constructor() {
+        super("PDF parsing is at capacity, try again later");
+        this.name = "PoolSaturatedError";
+    }
+}
+
+export class ParseTimeoutError extends Error {
+    constructor() {
+        super(`PDF parsing took longer than ${TIMEOUT_MS} ms`);
+        this.name = "ParseTimeoutError";
+    }
+}
+
+const idle = [];
+const queue = [];
+let workerCount = 0;
+let busy = 0;
+let nextId = 0;
+
+registerGauge("pdfPool.busy", () => busy);
+registerGauge("pdfPool.queued", () => queue.length);
+
+function createWorker() {
+    const worker = new Worker(WORKER_URL);
+    // Idle workers must not keep the process alive
+    worker.unref();
+    workerCount++;
+    worker.on("error", (err) => console.error("PDF worker error", err.message));
+    worker.on("exit", () => {
+        workerCount--;
+        const index = idle.indexOf(worker);
+        if (index !== -1) {
+            idle.splice(index, 1);
+        }
+        // A task that was on the crashed worker has already been settled by its own listener
+        drain();
+    });
+    return worker;
+}
+
+function run(worker, task) {
+    busy++;
+    const id = nextId++;
+    const start = process.hrtime.bigint();
+    let settled = false;
+
+    const finish = (settle) => {
+        if (settled) {
+            return;
+        }
+        settled = true;
+        clearTimeout(timer);
+        worker.off("message", onMessage);
+        worker.off("exit", onExit);
+        busy--;
+        observe("pdfPool.parse", Number(process.hrtime.bigint() - start) / 1e6);
+        settle();
+    };
+    const onMessage = (message) => {
+        if (message.id !== id) {
+            return;
+        }
+        finish(() => (message.error ? task.reject(new Error(message.error)) : task.resolve(message.text)));
+        idle.push(worker);
+        drain();
+    };
+    const onExit = () => finish(() => task.reject(new Error("PDF worker exited")));
+    const timer = setTimeout(() => {
+        finish(() => task.reject(new ParseTimeoutError()));
+        // pdf-parse can't be interrupted, the worker is thrown away and replaced on demand
+        worker.terminate();
+    }, TIMEOUT_MS);
+
+    worker.on("message", onMessage);
+    worker.on("exit", onExit);
+    observe("pdfPool.wait", Number(start - task.queuedAt) / 1e6);
+    worker.postMessage({ id, data: task.buffer });
+}
+
+function drain() {
+    while (queue.length > 0) {
+        let worker = idle.pop();
+        if (!worker) {
+            if (workerCount >= POOL_SIZE) {
+                return;
+            }
+            worker = createWorker();
+        }
+        run(worker, queue.shift());
+    }
+}
+
+// Resolves with the text of the PDF in pdfBuffer
+export function extractPdfText(pdfBuffer) {
+    if (queue.length >= MAX_QUEUED) {
+        return Promise.reject(new PoolSaturatedError());
+    }
+    return new Promise((resolve, reject) => {
+        queue.push({ buffer: pdfBuffer, resolve, reject, queuedAt: process.hrtime.bigint() });
+        drain();
+    });
+}
@@ -0,0 +1,52 @@
+// Deterministic stand-in for the model, used only when QUESTION_GENERATOR=stub.
+// It builds multiple-choice questions out of the chunk's own sentences so the whole pipeline
+// can run locally and in tests without network access.
+
+function sentencesOf(text) {
+    return text
+        .split(/(?<=[.!?])\s+/)
+        .map((s) => s.replace(/\s+/g, " ").trim())
+        .filter((s) => s.split(" ").length >= 4);
+}
+
+export async function generateStubQuestions(text, count) {
+    const sentences = sentencesOf(text);
+    const source = sentences.length > 0 ? sentences : [text.replace(/\s+/g, " ").trim() || "Empty lecture"];
+    const questions = [];
+
+    for (let i = 0; i < count; i++) {
+        const sentence = source[i % source.length];
+        const words = sentence.split(" ");
+        // Blank out the longest word and use its neighbours as distractors
+        let answerIndex = 0;
+        words.forEach((word, index) => {
+            if (word.length > words[answerIndex].length) {
+                answerIndex = index;
+            }
+        });
+        const correctAnswer = words[answerIndex].replace(/[^\w-]/g, "");
+        const distractors = words
+            .filter((_, index) => index !== answerIndex)
+            .map((word) => word.replace(/[^\w-]/g, ""))
+            .filter((word) => word.length > 0 && word !== correctAnswer)
+            .slice(0, 3);
+        const choices = [correctAnswer, ...distractors];
+        // Rotate so the correct answer is not always first
+        const rotation = i % choices.length;
+        const blanked = words.map((word, index) => (index === answerIndex ? "_____" : word)).join(" ");
+
+        questions.push({
+            questionText: `(${i + 1}) Fill in the blank: ${blanked}`,
+            questionType: "multiple-choice",
+            choices: [...choices.slice(rotation), ...choices.slice(0, rotation)],
+            correctAnswer,
+            difficultyLevel: ["easy", "medium", "hard"][i % 3],
+        });
+    }
+
+    return {
+        lectureTitle: source[0].slice(0, 60),
+        lectureContent: text.slice(0, 500),
+        questions,
+    };
+}
@@ -0,0 +1,45 @@
+import { test } from "node:test";
+import assert from "node:assert/strict";
+import { planChunks, splitText } from "../chunking.js";
+
+const paragraph = (length) => "x".repeat(length);
+const sum = (plan) => plan.reduce((total, chunk) => total + chunk.count, 0);
+
+test("paragraphs are packed without being cut", () => {
+    const chunks = splitText([paragraph(40), paragraph(40), paragraph(40)].join("\n\n"), 100);
+    assert.deepEqual(chunks.map((chunk) => chunk.length), [82, 40]);
+});
+
+test("a paragraph larger than a chunk is cut to size", () => {
+    const chunks = splitText(paragraph(250), 100);
+    assert.deepEqual(chunks.map((chunk) => chunk.length), [100, 100, 50]);
+});
+
+test("the plan adds up to exactly the count asked for", () => {
+    const chunks = [paragraph(300), paragraph(100), paragraph(200), paragraph(50)];
+    for (const count of [1, 3, 7, 10, 50]) {
+        assert.equal(sum(planChunks(chunks, count, 1000)), count);
+    }
+});
+
+test("questions are shared out by length", () => {
+    const plan = planChunks([paragraph(300), paragraph(100)], 4, 300);
+    assert.deepEqual(plan.map((chunk) => chunk.count), [3, 1]);
+});
+
+test("chunks are folded together only within the cap", () => {
+    const chunks = Array.from({ length: 6 }, () => paragraph(60));
+    const plan = planChunks(chunks, 2, 130);
+    assert.equal(sum(plan), 2);
+    for (const chunk of plan) {
+        assert.ok(chunk.text.length <= 130);
+    }
+});
+
+test("leftover questions are spread over tied chunks", () => {
+    const chunks = Array.from({ length: 10 }, (_, i) => String(i).repeat(100));
+    const plan = planChunks(chunks, 2, 100);
+    // One from each half of the lecture rather than the first two chunks
+    assert.deepEqual(plan.map((chunk) => chunks.indexOf(chunk.text)), [2, 7]);
+    assert.deepEqual(plan.map((chunk) => chunk.count), [1, 1]);
+});
@@ -0,0 +1,36 @@
+import { test } from "node:test";
+import assert from "node:assert/strict";
+import { gradeAnswers, isCorrectAnswer } from "../grading.js";
+
+test("matching is trimmed and case-insensitive", () => {
+    assert.equal(isCorrectAnswer("  paris ", "Paris"), true);
+    assert.equal(isCorrectAnswer("Lyon", "Paris"), false);
+});
+
+test("blank or missing answers are wrong", () => {
+    assert.equal(isCorrectAnswer(null, "Paris"), false);
+    assert.equal(isCorrectAnswer("", ""), false);
+    assert.equal(isCorrectAnswer("Paris", null), false);
+});
+
+test("an array of answers passes when any one matches", () => {
+    assert.equal(isCorrectAnswer(["Lyon", null, "PARIS"], "paris"), true);
+    assert.equal(isCorrectAnswer(["Lyon", "Nice"], "paris"), false);
+});
+
+test("each known question is graded once", () => {
+    const keys = [{ id: 1, correctAnswer: "Paris" }, { id: 2, correctAnswer: "4" }];
+    const { results, score, totalQuestions } = gradeAnswers([
+        { questionId: 1, answer: "paris" },
+        { questionId: 1, answer: "Lyon" },
+        { questionId: 2, answer: "3" },
+        { questionId: 99, answer: "anything" },
+    ], keys);
+
+    assert.equal(score, 1);
+    assert.equal(totalQuestions, 2);
+    assert.deepEqual(results, [
+        { questionId: 1, userAnswer: "paris", correctAnswer: "Paris", isCorrect: true },
+        { questionId: 2, userAnswer: "3", correctAnswer: "4", isCorrect: false },
+    ]);
+});
@@ -0,0 +1,51 @@
+import { test } from "node:test";
+import assert from "node:assert/strict";
+import { encodeQuestionPage } from "../wireFormat.js";
+
+// Reads the page back the way BinaryDecoder does on Android
+function decodeQuestionPage(buffer) {
+    let offset = 0;
+    const int32 = () => {
+        const value = buffer.readInt32BE(offset);
+        offset += 4;
+        return value;
+    };
+    const string = () => {
+        const length = int32();
+        if (length === -1) {
+            return null;
+        }
+        const value = buffer.toString("utf8", offset, offset + length);
+        offset += length;
+        return value;
+    };
+
+    assert.equal(buffer.toString("latin1", 0, 4), "QZQ1");
+    offset = 4;
+    const nextCursor = string();
+    const questions = Array.from({ length: int32() }, () => ({
+        id: int32(),
+        questionText: string(),
+        correctAnswer: string(),
+        choices: Array.from({ length: int32() }, string),
+    }));
+    assert.equal(offset, buffer.length);
+    return { nextCursor, questions };
+}
+
+test("a question page round-trips", () => {
+    const questions = [
+        { id: 7, questionText: "Capital of France?", correctAnswer: "Paris", choices: ["Paris", "Lyon"] },
+        { id: 8, questionText: "Größte Stadt?", correctAnswer: null, choices: [] },
+    ];
+    assert.deepEqual(decodeQuestionPage(encodeQuestionPage(questions, "8")), { nextCursor: "8", questions });
+});
+
+test("a last page has a null cursor", () => {
+    assert.deepEqual(decodeQuestionPage(encodeQuestionPage([], null)), { nextCursor: null, questions: [] });
+});
+
+test("choices that are not an array are sent as none", () => {
+    const page = decodeQuestionPage(encodeQuestionPage([{ id: 1, questionText: "Q", correctAnswer: "A", choices: "[\"A\"]" }], null));
+    assert.deepEqual(page.questions[0].choices, []);
+});
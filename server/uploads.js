@@ -0,0 +1,270 @@
+import express from "express";
+import { createReadStream, createWriteStream } from "fs";
+import { mkdir, readdir, readFile, rename, rm, stat, unlink, writeFile } from "fs/promises";
+import { createHash } from "crypto";
+import { Transform } from "stream";
+import { pipeline } from "stream/promises";
+import path from "path";
+import { reuseLecture } from "./database.js";
+import { generateQuestionsFromPdf } from "./pdfPipeline.js";
+import { countActiveJobs, enqueueJob, findActiveJob, isQueueFull, rejectBusy } from "./jobs.js";
+import { clampQuestionCount } from "./generator.js";
+
+// Resumable uploads keyed by the SHA-256 of the whole PDF.
+//
+//   POST /uploads                         { hash, size, fileName } -> known questions, or the chunks already received
+//   PUT  /uploads/:hash/chunks/:index     raw chunk bytes
+//   POST /uploads/:hash/complete          { fileName, totalChunks, questionCount } -> generation job, see /jobs/:id
+//
+// Chunks live under uploads/chunks/<hash>/ until questions have been generated from them, so an
+// interrupted client only has to send what is missing when it comes back, and a failed job or a
+// server restart never costs the client a full resend. The size declared when the upload starts
+// is kept next to them, and every chunk has to be exactly the length that size implies.
+// Uploads nobody has touched for UPLOAD_TTL_MS are swept.
+
+const CHUNK_SIZE = 1024 * 1024;
+export const MAX_UPLOAD_BYTES = Number.parseInt(process.env.MAX_UPLOAD_BYTES, 10) || 64 * 1024 * 1024;
+const UPLOAD_TTL_MS = 24 * 60 * 60 * 1000;
+const SWEEP_INTERVAL_MS = 60 * 60 * 1000;
+const CHUNKS_DIR = path.join("uploads", "chunks");
+const SESSION_FILE = "session.json";
+const HASH_PATTERN = /^[a-f0-9]{64}$/;
+
+const router = express.Router();
+
+function chunkDir(hash) {
+    return path.join(CHUNKS_DIR, hash);
+}
+
+async function receivedChunks(hash) {
+    try {
+        const files = await readdir(chunkDir(hash));
+        return files
+            .filter((file) => file.endsWith(".part"))
+            .map((file) => Number.parseInt(file, 10))
+            .sort((a, b) => a - b);
+    } catch (err) {
+        if (err.code === "ENOENT") {
+            return [];
+        }
+        throw err;
+    }
+}
+
+async function readChunks(hash, totalChunks) {
+    const parts = [];
+    for (let i = 0; i < totalChunks; i++) {
+        parts.push(await readFile(path.join(chunkDir(hash), `${i}.part`)));
+    }
+    return Buffer.concat(parts);
+}
+
+async function readSession(hash) {
+    try {
+        return JSON.parse(await readFile(path.join(chunkDir(hash), SESSION_FILE), "utf8"));
+    } catch (err) {
+        if (err.code === "ENOENT") {
+            return null;
+        }
+        throw err;
+    }
+}
+
+// Length chunk index must have in an upload of size bytes, 0 when there is no such chunk
+function expectedChunkLength(size, index) {
+    return Math.max(0, Math.min(CHUNK_SIZE, size - index * CHUNK_SIZE));
+}
+
+class ChunkLengthError extends Error {
+    constructor() {
+        super("Chunk has the wrong length");
+        this.name = "ChunkLengthError";
+    }
+}
+
+// Passes the body through and fails as soon as it runs past length
+function limitLength(length) {
+    let seen = 0;
+    return new Transform({
+        transform(data, encoding, callback) {
+            seen += data.length;
+            callback(seen > length ? new ChunkLengthError() : null, data);
+        },
+        flush(callback) {
+            callback(seen !== length ? new ChunkLengthError() : null);
+        },
+    });
+}
+
+// Removes uploads that have not been touched within the TTL, unless a job is still using them
+async function sweepStaleUploads() {
+    let hashes;
+    try {
+        hashes = await readdir(CHUNKS_DIR);
+    } catch (err) {
+        if (err.code !== "ENOENT") {
+            console.error("Error listing uploads", err.message);
+        }
+        return;
+    }
+    for (const hash of hashes) {
+        try {
+            const { mtimeMs } = await stat(chunkDir(hash));
+            if (Date.now() - mtimeMs > UPLOAD_TTL_MS && !findActiveJob(hash)) {
+                await rm(chunkDir(hash), { recursive: true, force: true });
+            }
+        } catch (err) {
+            console.error("Error sweeping upload", hash, err.message);
+        }
+    }
+}
+
+sweepStaleUploads();
+setInterval(sweepStaleUploads, SWEEP_INTERVAL_MS).unref();
+
+router.param("hash", (req, res, next, hash) => {
+    if (!HASH_PATTERN.test(hash)) {
+        return res.status(400).json({ error: "Invalid content hash" });
+    }
+    next();
+});
+
+router.post("/", async (req, res) => {
+    const { hash } = req.body;
+    const size = Number(req.body.size);
+    if (!HASH_PATTERN.test(hash || "")) {
+        return res.status(400).json({ error: "Invalid content hash" });
+    }
+    if (!Number.isInteger(size) || size <= 0) {
+        return res.status(400).json({ error: "Invalid size" });
+    }
+    if (size > MAX_UPLOAD_BYTES) {
+        return res.status(413).json({ error: `Uploads are limited to ${MAX_UPLOAD_BYTES} bytes` });
+    }
+
+    try {
+        // Known content is only answered from the database when it has as many questions as asked for
+        const existing = await reuseLecture(hash, req.body.fileName || "unknown.pdf");
+        if (existing.length > 0 && existing.length >= clampQuestionCount(req.body.questionCount)) {
+            return res.json({ known: true, questions: existing });
+        }
+
+        await mkdir(chunkDir(hash), { recursive: true });
+        await writeFile(path.join(chunkDir(hash), SESSION_FILE), JSON.stringify({ size }));
+        res.json({ known: false, chunkSize: CHUNK_SIZE, receivedChunks: await receivedChunks(hash) });
+    } catch (error) {
+        console.error(error);
+        res.status(500).json({ error: "Something went wrong" });
+    }
+});
+
+router.put("/:hash/chunks/:index", async (req, res) => {
+    const index = Number.parseInt(req.params.index, 10);
+    if (!Number.isInteger(index) || index < 0) {
+        return res.status(400).json({ error: "Invalid chunk index" });
+    }
+
+    const dir = chunkDir(req.params.hash);
+    const target = path.join(dir, `${index}.part`);
+    // Written under a temp name so a dropped connection never leaves a half chunk that counts as received
+    const temp = `${target}.tmp`;
+    try {
+        const session = await readSession(req.params.hash);
+        if (!session) {
+            return res.status(409).json({ error: "Unknown upload, start it with POST /uploads" });
+        }
+        const length = expectedChunkLength(session.size, index);
+        if (length === 0) {
+            return res.status(400).json({ error: "Chunk index is past the end of the upload" });
+        }
+        if (Number(req.headers["content-length"]) > length) {
+            return res.status(413).json({ error: "Chunk is too large" });
+        }
+
+        await pipeline(req, limitLength(length), createWriteStream(temp));
+        await rename(temp, target);
+        res.status(204).end();
+    } catch (error) {
+        unlink(temp).catch(() => {});
+        if (error.name === "ChunkLengthError") {
+            return res.status(400).json({ error: error.message });
+        }
+        console.error(error);
+        res.status(500).json({ error: "Could not store chunk" });
+    }
+});
+
+router.post("/:hash/complete", async (req, res) => {
+    const { hash } = req.params;
+    const fileName = req.body.fileName || "unknown.pdf";
+    const totalChunks = Number.parseInt(req.body.totalChunks, 10);
+    const questionCount = clampQuestionCount(req.body.questionCount);
+
+    try {
+        // Fewer stored questions than asked for are topped up by the job below
+        const existing = await reuseLecture(hash, fileName);
+        if (existing.length > 0 && existing.length >= questionCount) {
+            return res.json({ questions: existing, deduplicated: true });
+        }
+
+        const active = findActiveJob(hash, { fileName, requestedCount: questionCount });
+        if (active) {
+            return res.status(202).json(active);
+        }
+        // The chunks are kept either way, so the client can simply retry the same call
+        if (isQueueFull()) {
+            return rejectBusy(res);
+        }
+
+        // The chunk count follows from the size declared at the start, the client's is only checked against it
+        const session = await readSession(hash);
+        if (!session) {
+            return res.status(409).json({ error: "Unknown upload, start it with POST /uploads" });
+        }
+        const expectedChunks = Math.ceil(session.size / CHUNK_SIZE);
+        if (totalChunks !== expectedChunks) {
+            return res.status(400).json({ error: `Expected ${expectedChunks} chunks for ${session.size} bytes` });
+        }
+
+        const received = new Set(await receivedChunks(hash));
+        const missing = [];
+        for (let i = 0; i < totalChunks; i++) {
+            if (!received.has(i)) {
+                missing.push(i);
+            }
+        }
+        if (missing.length > 0) {
+            return res.status(409).json({ error: "Upload is incomplete", missingChunks: missing });
+        }
+
+        const digest = createHash("sha256");
+        for (let i = 0; i < totalChunks; i++) {
+            for await (const data of createReadStream(path.join(chunkDir(hash), `${i}.part`))) {
+                digest.update(data);
+            }
+        }
+        if (digest.digest("hex") !== hash) {
+            await rm(chunkDir(hash), { recursive: true, force: true });
+            return res.status(422).json({ error: "Content hash mismatch, upload again" });
+        }
+
+        // The chunks stay on disk while the job waits in the queue and are only read once it starts
+        const job = enqueueJob(fileName, async () => {
+            const pdfBuffer = await readChunks(hash, totalChunks);
+            const questions = await generateQuestionsFromPdf(pdfBuffer, fileName, hash,
+                questionCount - existing.length, existing);
+            // Saved under the hash now, a repeat upload is answered from the database. Another job
+            // for the same content under a different name may still need the chunks.
+            if (questions && countActiveJobs(hash) <= 1) {
+                await rm(chunkDir(hash), { recursive: true, force: true });
+            }
+            return questions;
+        }, { contentHash: hash, requestedCount: questionCount });
+        res.status(202).json(job);
+    } catch (error) {
+        console.error(error);
+        res.status(500).json({ error: "Something went wrong" });
+    }
+});
+
+export default router;
@@ -0,0 +1,79 @@
+import { createHash } from "crypto";
+import { promisify } from "util";
+import zlib from "zlib";
+
+// Response encoding for the list endpoints: optional compact binary body for question pages,
+// negotiated with Accept, and br/gzip compression negotiated with Accept-Encoding.
+
+export const QUESTIONS_BINARY_TYPE = "application/x-quizify-questions";
+
+// Small bodies cost more to compress than they save
+const MIN_COMPRESS_BYTES = 1024;
+
+const brotli = promisify(zlib.brotliCompress);
+const gzip = promisify(zlib.gzip);
+
+// Binary question page, big-endian, mirrored by BinaryDecoder on Android:
+//   "QZQ1"  nextCursor:string  count:int32  count * (id:int32 questionText:string correctAnswer:string
+//           choiceCount:int32 choiceCount * choice:string)
+// where string is an int32 UTF-8 byte length (-1 for null) followed by the bytes.
+export function encodeQuestionPage(questions, nextCursor) {
+    const parts = [Buffer.from("QZQ1", "latin1")];
+    const int32 = (value) => {
+        const buffer = Buffer.allocUnsafe(4);
+        buffer.writeInt32BE(value);
+        parts.push(buffer);
+    };
+    const string = (value) => {
+        if (value === null || value === undefined) {
+            int32(-1);
+            return;
+        }
+        const bytes = Buffer.from(String(value), "utf8");
+        int32(bytes.length);
+        parts.push(bytes);
+    };
+
+    string(nextCursor);
+    int32(questions.length);
+    for (const question of questions) {
+        const choices = Array.isArray(question.choices) ? question.choices : [];
+        int32(question.id);
+        string(question.questionText);
+        string(question.correctAnswer);
+        int32(choices.length);
+        choices.forEach(string);
+    }
+    return Buffer.concat(parts);
+}
+
+// Sends body with an ETag per representation, answering 304 when the client already has it
+export async function sendEncoded(req, res, body, contentType) {
+    const buffer = Buffer.isBuffer(body) ? body : Buffer.from(body, "utf8");
+    res.vary("Accept");
+    res.vary("Accept-Encoding");
+    res.type(contentType);
+
+    const encoding = buffer.length >= MIN_COMPRESS_BYTES ? req.acceptsEncodings("br", "gzip") : false;
+    const hash = createHash("sha1").update(buffer).digest("base64url");
+    res.set("ETag", `"${hash}${encoding ? `-${encoding}` : ""}"`);
+    if (req.fresh) {
+        return res.status(304).end();
+    }
+
+    if (encoding === "br") {
+        res.set("Content-Encoding", "br");
+        return res.send(await brotli(buffer, {
+            params: {
+                // Quality 5 is most of brotli's gain at a fraction of the default's CPU cost
+                [zlib.constants.BROTLI_PARAM_QUALITY]: 5,
+                [zlib.constants.BROTLI_PARAM_SIZE_HINT]: buffer.length,
+            },
+        }));
+    }
+    if (encoding === "gzip") {
+        res.set("Content-Encoding", "gzip");
+        return res.send(await gzip(buffer));
+    }
+    res.send(buffer);
+}
@@ -21,3 +21,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "quizify_mobile"
 include(":app")
+include(":microbenchmark")
+include(":macrobenchmark")